@@ -0,0 +1,69 @@
+package frc.robot.Autonomous;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import frc.robot.Drivetrain.DrivetrainSubsystem;
+import jaci.pathfinder.Trajectory;
+
+/**
+ * Unit conversions, heading correction and one TrajectoryFollower step, the math PathFollower
+ * runs every loop
+ */
+@State(Scope.Thread)
+public class PathFollowerBenchmark {
+
+    private static final int kSegments = 500;
+    private static final double kDt = 0.02;
+
+    private TrajectoryFollower follower;
+    private double time = 0;
+    private double meters = 0;
+
+    @Setup
+    public void setup() {
+        // Straight line at 2 m/s with a slowly turning heading
+        Trajectory.Segment[] segments = new Trajectory.Segment[kSegments];
+        for (int i = 0; i < kSegments; i++) {
+            double position = i * kDt * 2;
+            segments[i] = new Trajectory.Segment(kDt, position, 0, position, 2, 0, 0, i * 0.001);
+        }
+
+        follower = new TrajectoryFollower(new Trajectory(segments));
+        follower.configureEncoder(0, DrivetrainSubsystem.kTicksPerMeter);
+        follower.configurePDVA(0.5, 0, 1 / 2.872716583788768, 0);
+        follower.start(0);
+    }
+
+    @Benchmark
+    public double toTicks() {
+        meters += 0.01;
+        return PathFollower.toTicks(meters);
+    }
+
+    @Benchmark
+    public double toMeters() {
+        meters += 1;
+        return PathFollower.toMeters(meters);
+    }
+
+    @Benchmark
+    public double headingCorrection() {
+        meters += 0.01;
+        return PathFollower.headingCorrection(meters, 57.2958 * meters + 3);
+    }
+
+    // Wraps around before the end so every call does the interpolated lookup
+    @Benchmark
+    public double followerStep() {
+        time += kDt;
+        if (time >= (kSegments - 2) * kDt) {
+            time = 0;
+            follower.start(0);
+        }
+        return follower.calculate((int) (time * 2 * DrivetrainSubsystem.kTicksPerMeter), time);
+    }
+
+}
@@ -0,0 +1,46 @@
+package frc.robot.Autonomous;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import jaci.pathfinder.Pathfinder;
+import jaci.pathfinder.Trajectory;
+import jaci.pathfinder.Waypoint;
+import jaci.pathfinder.modifiers.TankModifier;
+
+/**
+ * Generating the same S-curve with TrajectoryGenerator and with Pathfinder's JNI generator
+ * (HERMITE_CUBIC, SAMPLES_LOW, as TrajectoryService used it) plus TankModifier
+ */
+@State(Scope.Thread)
+public class TrajectoryGeneratorBenchmark {
+
+    private static final double kWheelbase = 0.59817;
+
+    private final Waypoint[] points = {
+        new Waypoint(0, 0, 0),
+        new Waypoint(2, 1, 0),
+        new Waypoint(4, 0, 0)
+    };
+
+    private final TrajectoryGenerator.Config quinticConfig = new TrajectoryGenerator.Config(0.02, 2, 1, kWheelbase)
+            .maxCentripetal(1.5)
+            .maxVoltage(10, 1.0, 12 / 2.872716583788768, 0);
+
+    private final Trajectory.Config pathfinderConfig = new Trajectory.Config(Trajectory.FitMethod.HERMITE_CUBIC,
+            Trajectory.Config.SAMPLES_LOW, 0.02, 2, 1, 15);
+
+    @Benchmark
+    public TankTrajectory quintic() {
+        return TrajectoryGenerator.generate(points, quinticConfig);
+    }
+
+    @Benchmark
+    public TankTrajectory pathfinder() {
+        TankModifier modifier = new TankModifier(Pathfinder.generate(points, pathfinderConfig));
+        modifier.modify(kWheelbase);
+        return new TankTrajectory(modifier.getLeftTrajectory(), modifier.getRightTrajectory());
+    }
+
+}
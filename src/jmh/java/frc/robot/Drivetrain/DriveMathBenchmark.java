@@ -0,0 +1,124 @@
+package frc.robot.Drivetrain;
+
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import frc.robot.Control.InputShaper;
+
+/**
+ * Joystick shaping and mixing, InputShaper against the static helpers that Drive, CurvatureDrive
+ * and CurvatureDriveTriggered each had a copy of (kept below as the baseline). Fed with a fixed
+ * set of random stick values so branches aren't perfectly predicted.
+ */
+@State(Scope.Thread)
+public class DriveMathBenchmark {
+
+    private static final int kSamples = 1024;
+
+    private final double[] sticks = new double[kSamples];
+    private int index = 0;
+
+    private final InputShaper deadband = new InputShaper().deadband(0.03);
+    private final InputShaper minimum = new InputShaper().minimum(0.8 / 12.0);
+    private final InputShaper expo = new InputShaper().expo(2);
+    private final InputShaper throttleShaper = new InputShaper().deadband(0.03);
+    private final InputShaper turnShaper = new InputShaper().deadband(0.03);
+    private final InputShaper leftShaper = new InputShaper().expo(2);
+    private final InputShaper rightShaper = new InputShaper().expo(2);
+
+    @Setup
+    public void setup() {
+        Random random = new Random(254);
+        for (int i = 0; i < kSamples; i++) {
+            sticks[i] = random.nextDouble() * 2 - 1;
+        }
+    }
+
+    private double next() {
+        index = (index + 1) & (kSamples - 1);
+        return sticks[index];
+    }
+
+    @Benchmark
+    public double legacyDeadbandX() {
+        return deadbandX(next(), 0.03);
+    }
+
+    @Benchmark
+    public double shaperDeadband() {
+        return deadband.calculate(next());
+    }
+
+    @Benchmark
+    public double legacyDeadbandY() {
+        return deadbandY(next(), 0.8 / 12.0);
+    }
+
+    @Benchmark
+    public double shaperMinimum() {
+        return minimum.calculate(next());
+    }
+
+    @Benchmark
+    public double legacyExponentiate() {
+        return exponentiate(next(), 2);
+    }
+
+    @Benchmark
+    public double shaperExpo() {
+        return expo.calculate(next());
+    }
+
+    // Everything CurvatureDrive does to the sticks in one loop, before and after InputShaper
+    @Benchmark
+    public double legacyCurvatureDrive() {
+        double throttle = deadbandX(next(), 0.03);
+        double turn = deadbandX(next(), 0.03);
+        double qLeft = Math.abs(next()), qRight = Math.abs(next());
+
+        double left = exponentiate(CurvatureDrive.mixLeft(throttle, turn, qLeft, qRight), 2);
+        double right = exponentiate(CurvatureDrive.mixRight(throttle, turn, qLeft, qRight), 2);
+        return left + right;
+    }
+
+    @Benchmark
+    public double shaperCurvatureDrive() {
+        double throttle = throttleShaper.calculate(next());
+        double turn = turnShaper.calculate(next());
+        double qLeft = Math.abs(next()), qRight = Math.abs(next());
+
+        double left = leftShaper.calculate(CurvatureDrive.mixLeft(throttle, turn, qLeft, qRight));
+        double right = rightShaper.calculate(CurvatureDrive.mixRight(throttle, turn, qLeft, qRight));
+        return left + right;
+    }
+
+    // The helpers as they were in Drive before InputShaper replaced them
+    private static double deadbandX(double input, double deadband) {
+        if (Math.abs(input) <= deadband) {
+            return 0;
+        } else if (Math.abs(input) == 1) {
+            return input;
+        } else {
+            return (1 / (1 - deadband) * (input + Math.signum(-input) * deadband));
+        }
+    }
+
+    private static double exponentiate(double input, double power) {
+        return Math.copySign(Math.pow(input, power), input);
+    }
+
+    private static double deadbandY(double input, double deadband) {
+        if (Math.abs(input) == 0.0) {
+            return 0;
+        } else if (Math.abs(input) == 1) {
+            return input;
+        } else {
+            return input * (1.0 - deadband) + Math.signum(input) * deadband;
+        }
+    }
+
+}
@@ -0,0 +1,42 @@
+package frc.robot.OI;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Thread)
+public class PIDControllerBenchmark {
+
+    private PIDController controller;
+    private double error = 10;
+    private double step = 0.37;
+
+    // Advances one loop per read, so the benchmark times the control math rather than a HAL call
+    private double time = 0;
+
+    @Setup
+    public void setup() {
+        // Configured like VisionTrack's aim loop so every path (measured dt, integral zone,
+        // anti-windup on saturation, filtered D, static feedforward) runs
+        controller = new PIDController(0.03, 0.03, 0.002, 0.02);
+        controller.setClock(() -> time += 0.02);
+        controller.setStaticFeedforward(0.05);
+        controller.setTolerance(0.5);
+        controller.setIntegralLimits(2, 5);
+        controller.setDerivativeFilter(0.06);
+        controller.setOutputLimits(-0.5, 0.5);
+        controller.configure(error);
+    }
+
+    @Benchmark
+    public double calculate() {
+        // Sweeps -20..20 degrees, in and out of the integral zone and the output limits
+        error += step;
+        if (Math.abs(error) > 20) {
+            step = -step;
+        }
+        return controller.calculate(error);
+    }
+
+}
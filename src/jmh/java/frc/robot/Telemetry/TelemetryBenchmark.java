@@ -0,0 +1,37 @@
+package frc.robot.Telemetry;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+
+/**
+ * Cost on the control loop of publishing one number: Telemetry.put() against the
+ * SmartDashboard.putNumber() calls it replaced
+ */
+@State(Scope.Thread)
+public class TelemetryBenchmark {
+
+    private int handle;
+    private double value = 0;
+
+    @Setup
+    public void setup() {
+        handle = Telemetry.register("Benchmark value");
+    }
+
+    @Benchmark
+    public void telemetryPut() {
+        value += 0.001;
+        Telemetry.put(handle, value);
+    }
+
+    @Benchmark
+    public boolean smartDashboardPutNumber() {
+        value += 0.001;
+        return SmartDashboard.putNumber("Benchmark value", value);
+    }
+
+}
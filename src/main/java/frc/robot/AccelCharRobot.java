@@ -1,34 +1,35 @@
 package frc.robot;
 
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.PrintWriter;
+import java.io.IOException;
 import java.util.Arrays;
 
 import com.ctre.phoenix.motorcontrol.ControlMode;
 import com.ctre.phoenix.motorcontrol.FeedbackDevice;
 import com.ctre.phoenix.motorcontrol.StatusFrameEnhanced;
-import com.ctre.phoenix.motorcontrol.can.TalonSRX;
 
 import edu.wpi.first.wpilibj.Joystick;
 import edu.wpi.first.wpilibj.TimedRobot;
 import edu.wpi.first.wpilibj.command.Scheduler;
+import frc.robot.Diagnostics.BlockLogger;
+import frc.robot.Hardware.ShadowTalonSRX;
 
 /*
 * This is a robot class that can be used to characterize the
-* acceleration of a robot, creating a csv dataset under home/lvuser/dtchar
+* acceleration of a robot, creating a BlockLogger dataset under home/lvuser/dtchar
+* (convert it to csv with frc.robot.Diagnostics.LogConverter)
 */
 
 //NOTE: If the folder home/lvuser/dtchar does not exist, it will crash
 public class AccelCharRobot extends TimedRobot {
-  private static final TalonSRX leftMotorA = new TalonSRX(3), leftMotorB = new TalonSRX(4),
-      rightMotorA = new TalonSRX(2), rightMotorB = new TalonSRX(1);
+  private static final ShadowTalonSRX leftMotorA = new ShadowTalonSRX(3), leftMotorB = new ShadowTalonSRX(4),
+      rightMotorA = new ShadowTalonSRX(2), rightMotorB = new ShadowTalonSRX(1);
 
-  private static final TalonSRX[] motors = { leftMotorA, leftMotorB, rightMotorB, rightMotorA };
-  private static final TalonSRX[] leftMotors = { leftMotorA, leftMotorB };
-  private static final TalonSRX[] rightMotors = { rightMotorA, rightMotorB };
+  private static final ShadowTalonSRX[] motors = { leftMotorA, leftMotorB, rightMotorB, rightMotorA };
+  private static final ShadowTalonSRX[] leftMotors = { leftMotorA, leftMotorB };
+  private static final ShadowTalonSRX[] rightMotors = { rightMotorA, rightMotorB };
 
-  private PrintWriter csvWriter = null;
+  private BlockLogger logger = null;
   private Joystick joystick = new Joystick(0);
   public double appliedOutput;
 
@@ -42,7 +43,7 @@ public class AccelCharRobot extends TimedRobot {
     Arrays.stream(leftMotors).forEach(motor -> motor.setInverted(true));
     Arrays.stream(rightMotors).forEach(motor -> motor.setInverted(false));
 
-    for (TalonSRX motor : motors) {
+    for (ShadowTalonSRX motor : motors) {
       // Current and voltage settings
       motor.configPeakCurrentLimit(30, 10);
       motor.configPeakCurrentDuration(500, 10);
@@ -66,22 +67,22 @@ public class AccelCharRobot extends TimedRobot {
 
   @Override
   public void robotPeriodic() {
-    if (!isOperatorControl() && csvWriter != null) {
-      csvWriter.close();
-      csvWriter = null;
+    if (!isOperatorControl() && logger != null) {
+      logger.close();
+      logger = null;
     }
     Scheduler.getInstance().run();
   }
 
   public void teleopPeriodic() {
     if (joystick.getRawButton(1)) { // if button A is pressed
-      if (csvWriter == null) {
-        // create a new CSV writer, reset everything
+      if (logger == null) {
+        // create a new logger, reset everything
         try {
-          csvWriter = new PrintWriter(
-              new File("/home/lvuser/dtmeasure/measure_acceleration-" + System.currentTimeMillis() + ".csv"));
-          csvWriter.println("lvoltage,lvelocity,rvoltage,rvelocity");
-        } catch (FileNotFoundException e) {
+          logger = new BlockLogger(
+              new File("/home/lvuser/dtmeasure/measure_acceleration-" + System.currentTimeMillis() + ".rlog"),
+              "lvoltage", "lvelocity", "rvoltage", "rvelocity");
+        } catch (IOException e) {
           throw new RuntimeException(e);
         }
 
@@ -90,18 +91,21 @@ public class AccelCharRobot extends TimedRobot {
         rightMotorA.set(ControlMode.PercentOutput, 0);
 
       } else {
-        //If PrintWriter exists, add data to csv and set voltage
-        csvWriter.println(leftMotorA.getMotorOutputVoltage() + "," + leftMotorA.getSelectedSensorVelocity(0) + ","
-            + rightMotorA.getMotorOutputVoltage() + "," + rightMotorA.getSelectedSensorVelocity(0));
+        //If the logger exists, add a sample and set voltage
+        logger.set(0, leftMotorA.getMotorOutputVoltage());
+        logger.set(1, leftMotorA.getSelectedSensorVelocity(0));
+        logger.set(2, rightMotorA.getMotorOutputVoltage());
+        logger.set(3, rightMotorA.getSelectedSensorVelocity(0));
+        logger.endRow();
         appliedOutput = 0.5; // Applies 6V
         leftMotorA.set(ControlMode.PercentOutput, appliedOutput);
         rightMotorA.set(ControlMode.PercentOutput, appliedOutput);
       }
-    } else { //Resets robot movement to 0, closes PrintWriter if it is open to prepare for a new iteration
+    } else { //Resets robot movement to 0, closes the logger if it is open to prepare for a new iteration
       appliedOutput = 0;
-      if (csvWriter != null) {
-        csvWriter.close();
-        csvWriter = null;
+      if (logger != null) {
+        logger.close();
+        logger = null;
       }
       leftMotorA.set(ControlMode.PercentOutput, 0);
       rightMotorA.set(ControlMode.PercentOutput, 0);
@@ -1,9 +1,9 @@
 package frc.robot.Autonomous;
 
-import edu.wpi.first.wpilibj.command.Command;
 import frc.robot.Robot;
+import frc.robot.Diagnostics.ProfiledCommand;
 
-public class AutoDelay extends Command{
+public class AutoDelay extends ProfiledCommand{
     private double timeout;
 
     public AutoDelay(double timeout){
@@ -11,17 +11,17 @@ public class AutoDelay extends Command{
         this.timeout = timeout;
     }
 
-    protected void initialize(){
+    protected void onInitialize(){
         System.out.println("Delaying for " + timeout + " seconds!");
         setTimeout(timeout);
 
     }
 
-    protected void execute(){
+    protected void onExecute(){
 
     }
 
-    protected void end(){
+    protected void onEnd(){
 
     }
 
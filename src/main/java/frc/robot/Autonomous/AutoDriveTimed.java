@@ -1,10 +1,10 @@
 package frc.robot.Autonomous;
 
-import edu.wpi.first.wpilibj.command.Command;
 import frc.robot.Robot;
+import frc.robot.Diagnostics.ProfiledCommand;
 import frc.robot.Drivetrain.DrivetrainSubsystem;
 
-public class AutoDriveTimed extends Command{
+public class AutoDriveTimed extends ProfiledCommand{
     private double timeout;
     private double speed = 0.4;
 
@@ -13,16 +13,16 @@ public class AutoDriveTimed extends Command{
         this.timeout = timeout;
     }
 
-    protected void initialize(){
+    protected void onInitialize(){
         System.out.println("Running timed straight driving at " + speed*100 + " percent for " + timeout +" seconds!");
         setTimeout(timeout);
     }
 
-    protected void execute(){
+    protected void onExecute(){
         DrivetrainSubsystem.drive(speed,speed);
     }
 
-    protected void end(){
+    protected void onEnd(){
         DrivetrainSubsystem.drive(0,0);
     }
 
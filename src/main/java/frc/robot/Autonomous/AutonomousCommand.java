@@ -1,24 +1,33 @@
 package frc.robot.Autonomous;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import edu.wpi.first.wpilibj.command.CommandGroup;
 import frc.robot.Intake.IntakeSpin;
 import frc.robot.Robot.Position;
 import frc.robot.Robot.Priority;
 
 public class AutonomousCommand extends CommandGroup{
-    private String gameData;
     private Position startingPosition;
     private Priority priority;
 
     private char switchSide;
     private char baselineSide;
 
+    //Printed when the routine starts instead of when it is built, since AutonomousRegistry builds every routine ahead of time
+    private String description = "Auto failed :(";
+
+    private final List<String> pathNames = new ArrayList<>();
+
     public AutonomousCommand(String gameData, Position startingPosition, Priority priority){
-        this.gameData = gameData;
+        this(startingPosition, priority, gameData.charAt(0));
+    }
+
+    public AutonomousCommand(Position startingPosition, Priority priority, char switchSide){
         this.startingPosition = startingPosition;
         this.priority = priority;
-
-        this.switchSide = gameData.charAt(0);
+        this.switchSide = switchSide;
 
         if(switchSide == 'L'){
             baselineSide = 'R';
@@ -29,50 +38,60 @@ public class AutonomousCommand extends CommandGroup{
         if(startingPosition == Position.CENTER){
 
             if(priority == Priority.BASELINE){
-                System.out.println("Running center to baseline!");
-                new PathFollower("Cto"+baselineSide+"Baseline").start();
+                description = "Running center to baseline!";
+                addSequential(path("Cto"+baselineSide+"Baseline"));
 
             } else if (priority == Priority.DEFAULT){
-                System.out.println("Running center to " + switchSide + " switch!");
+                description = "Running center to " + switchSide + " switch!";
                 addSequential(new RaiseElevatorTimed(0.4, 2));
-                addSequential(new PathFollower("Cto"+switchSide+"Switch"));
+                addSequential(path("Cto"+switchSide+"Switch"));
                 addSequential(new IntakeSpin(0.7));
 
-            } else {
-                System.out.println("Auto failed :(");
-            }  
+            }
 
         } else if (startingPosition == Position.LEFT){
 
             if(priority == Priority.BASELINE){
-                System.out.println("Running left to baseline!");
-                new PathFollower("Straight15ft").start();
+                description = "Running left to baseline!";
+                addSequential(path("Straight15ft"));
 
             } else if (priority == Priority.DEFAULT){
-                System.out.println("Running left to left switch!");
-                new PathFollower("LtoLSwitch").start();
+                description = "Running left to left switch!";
+                addSequential(path("LtoLSwitch"));
 
-            } else {
-                System.out.println("Auto failed :("); 
             }
 
         } else if (startingPosition == Position.RIGHT){
 
             if(priority == Priority.BASELINE){
-                System.out.println("Running right to baseline!");
-                new PathFollower("Straight15ft").start();
+                description = "Running right to baseline!";
+                addSequential(path("Straight15ft"));
 
             } else if (priority == Priority.DEFAULT){
-                System.out.println("Running right to right switch!");
-                new PathFollower("RtoRSwitch").start();
-                
-            } else {
-                System.out.println("Auto failed :(");
+                description = "Running right to right switch!";
+                addSequential(path("RtoRSwitch"));
                 
             }
         }
 
     }
 
+    //Only builds from the cache, a missing profile would otherwise fall back to reading CSVs at auto start
+    private PathFollower path(String pathName){
+        if(!TrajectoryCache.contains(pathName)){
+            throw new IllegalStateException("No profile loaded for " + pathName);
+        }
+        pathNames.add(pathName);
+        return new PathFollower(pathName);
+    }
+
+    public List<String> getPathNames(){
+        return pathNames;
+    }
+
+    @Override
+    protected void initialize(){
+        System.out.println(description);
+    }
 
-}
\ No newline at end of file
+}
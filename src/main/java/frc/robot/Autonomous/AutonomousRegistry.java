@@ -0,0 +1,122 @@
+package frc.robot.Autonomous;
+
+import edu.wpi.first.wpilibj.command.CommandGroup;
+import frc.robot.Robot.Position;
+import frc.robot.Robot.Priority;
+
+/**
+ * Every autonomous routine, built ahead of time so autonomousInit only does an array lookup
+ *
+ * There is one slot per (Position, Priority, switch side). buildNext() builds at most one
+ * routine per call and is meant to be called from disabledPeriodic, so the construction cost is
+ * spread over the disabled loops instead of landing on the first autonomous loop. A routine that
+ * can't be built (missing profile, subsystem not enabled) is logged once and left empty.
+ */
+public class AutonomousRegistry {
+
+    private static final Position[] positions = Position.values();
+    private static final Priority[] priorities = Priority.values();
+    private static final char[] sides = { 'L', 'R' };
+
+    private static final int kSlots = positions.length * priorities.length * sides.length;
+
+    private static final CommandGroup[] routines = new CommandGroup[kSlots];
+    private static final boolean[] built = new boolean[kSlots];
+    private static int builtCount = 0;
+
+    private static int index(Position position, Priority priority, int side) {
+        return (position.ordinal() * priorities.length + priority.ordinal()) * sides.length + side;
+    }
+
+    private static int sideIndex(char side) {
+        for (int i = 0; i < sides.length; i++) {
+            if (sides[i] == side) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Builds the next missing routine, if there is one
+     *
+     * @return true if every slot has been built
+     */
+    public static boolean buildNext() {
+        if (builtCount == kSlots) {
+            return true;
+        }
+
+        for (int slot = 0; slot < kSlots; slot++) {
+            if (built[slot]) {
+                continue;
+            }
+
+            int side = slot % sides.length;
+            Priority priority = priorities[slot / sides.length % priorities.length];
+            Position position = positions[slot / sides.length / priorities.length];
+
+            long start = System.nanoTime();
+            routines[slot] = build(position, priority, sides[side]);
+            built[slot] = true;
+            builtCount++;
+
+            if (routines[slot] != null) {
+                System.out.println("Built auto " + position + " " + priority + " " + sides[side] + " in "
+                        + (System.nanoTime() - start) / 1e6 + " ms");
+            }
+            break;
+        }
+
+        return builtCount == kSlots;
+    }
+
+    private static CommandGroup build(Position position, Priority priority, char side) {
+        try {
+            AutonomousCommand routine = new AutonomousCommand(position, priority, side);
+            if (routine.getPathNames().isEmpty()) {
+                System.out.println("Auto " + position + " " + priority + " " + side + " has no paths, skipping");
+                return null;
+            }
+            return routine;
+        } catch (RuntimeException e) {
+            System.out.println("Auto " + position + " " + priority + " " + side + " is invalid: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Hands out the prebuilt routine for the selection and game data; the slot is rebuilt during the
+     * next disabled period, since a group that has run shouldn't be reused
+     *
+     * @return the routine, or null if there isn't a valid one
+     */
+    public static CommandGroup take(Position position, Priority priority, String gameData) {
+        if (position == null || priority == null || gameData == null || gameData.isEmpty()) {
+            System.out.println("No auto selected or no game data, not running an auto");
+            return null;
+        }
+
+        int side = sideIndex(gameData.charAt(0));
+        if (side < 0) {
+            System.out.println("Bad game data " + gameData + ", not running an auto");
+            return null;
+        }
+
+        int slot = index(position, priority, side);
+        if (!built[slot]) {
+            // Only happens if auto starts before disabled has run for long enough
+            System.out.println("Auto " + position + " " + priority + " " + gameData.charAt(0) + " wasn't prebuilt, building now");
+            routines[slot] = build(position, priority, sides[side]);
+            built[slot] = true;
+            builtCount++;
+        }
+
+        CommandGroup routine = routines[slot];
+        routines[slot] = null;
+        built[slot] = false;
+        builtCount--;
+        return routine;
+    }
+
+}
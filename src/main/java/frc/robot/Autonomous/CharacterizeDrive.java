@@ -1,90 +1,134 @@
 package frc.robot.Autonomous;
 
-import java.util.ArrayList;
-
-import com.ctre.phoenix.motorcontrol.can.TalonSRX;
-
-import org.apache.commons.math3.stat.regression.SimpleRegression;
+import java.util.function.DoubleSupplier;
 
 import edu.wpi.first.wpilibj.Timer;
-import edu.wpi.first.wpilibj.command.Command;
 import frc.robot.Robot;
+import frc.robot.Control.GainsFile;
+import frc.robot.Control.LeastSquares;
+import frc.robot.Diagnostics.ProfiledCommand;
 import frc.robot.Drivetrain.DrivetrainSubsystem;
+import frc.robot.Telemetry.Telemetry;
+
+public class CharacterizeDrive extends ProfiledCommand {
 
-public class CharacterizeDrive extends Command {
-    
+    //Samples slower than this (m/s) are mostly static friction noise and are left out of the fit
+    private static final double kMinSpeed = 0.05;
+
+    //The fit counts as converged once kV has moved less than this fraction for kStableSolves loops in a row
+    private static final double kConvergedChange = 0.005;
+    private static final int kStableSolves = 50;
+    private static final int kMinSamples = 200;
 
     static class dtSide {
 
         public double percentOut = 0;
-        public double vIntercept = 0;
-        public SimpleRegression regression = new SimpleRegression();
 
         public String side;
-        public double speed;
-        public ArrayList<Triple> dataPoints = new ArrayList<Triple>();
+        public double speed, lastSpeed, acceleration;
+        private boolean hasLastSpeed = false;
 
-        public TalonSRX speedController;
+        //Fits voltage = kS*sign(v) + kV*v + kA*a, keeping only running sums
+        public LeastSquares fit = new LeastSquares(3);
+        private final double[] regressors = new double[3];
+        private double lastKv = 0;
+        private int stableSolves = 0;
 
-        public dtSide(String side, TalonSRX talon){
-            this.side = side;
-            this.speedController = talon;
+        public DoubleSupplier velocity, voltage;
 
-            updateEncoder();
-        }
+        private final int kSHandle, kVHandle, kAHandle, rSquaredHandle;
 
-        public void updateEncoder(){
-            this.speed = speedController.getSelectedSensorVelocity(0);
-        }
+        public dtSide(String side, DoubleSupplier velocity, DoubleSupplier voltage){
+            this.side = side;
+            this.velocity = velocity;
+            this.voltage = voltage;
 
-        public void addPoint(){
-            updateEncoder();
-            dataPoints.add(new Triple(percentOut, speed, Timer.getFPGATimestamp()));
+            kSHandle = Telemetry.register("Char " + side + " kS", 0.1, 0);
+            kVHandle = Telemetry.register("Char " + side + " kV", 0.1, 0);
+            kAHandle = Telemetry.register("Char " + side + " kA", 0.1, 0);
+            rSquaredHandle = Telemetry.register("Char " + side + " R2", 0.1, 0);
         }
 
-        public void setPercentOut(double percentOut){
-            this.percentOut = percentOut;
+        public void reset(){
+            percentOut = 0;
+            hasLastSpeed = false;
+            fit.reset();
+            lastKv = 0;
+            stableSolves = 0;
         }
 
-    }
+        //Adds this loop's voltage, velocity and acceleration to the fit
+        public void addPoint(double dt){
+            speed = velocity.getAsDouble();
+            if(!hasLastSpeed || dt <= 0){
+                lastSpeed = speed;
+                hasLastSpeed = true;
+                return;
+            }
+            acceleration = (speed - lastSpeed) / dt;
+            lastSpeed = speed;
 
-    static final class Triple{
-        public final double x;
-        public final double y;
-        public final double z;
+            if(Math.abs(speed) < kMinSpeed){
+                return;
+            }
 
-        public Triple(double x, double y, double z){
-            this.x = x;
-            this.y = y;
-            this.z = z;
+            regressors[0] = Math.signum(speed);
+            regressors[1] = speed;
+            regressors[2] = acceleration;
+            fit.add(regressors, voltage.getAsDouble());
         }
 
-        public boolean equals(Triple arg){
-            if(arg.x == this.x && arg.y == this.y && arg.z == this.z){
-                return true;
+        //Re-solves the fit and publishes the live estimates
+        public void update(){
+            if(!fit.solve()){
+                return;
+            }
+
+            double kV = fit.getCoefficient(1);
+            if(lastKv != 0 && Math.abs(kV - lastKv) < kConvergedChange * Math.abs(lastKv)){
+                stableSolves++;
             } else {
-                return false;
+                stableSolves = 0;
             }
+            lastKv = kV;
+
+            Telemetry.put(kSHandle, fit.getCoefficient(0));
+            Telemetry.put(kVHandle, kV);
+            Telemetry.put(kAHandle, fit.getCoefficient(2));
+            Telemetry.put(rSquaredHandle, fit.getRSquared());
+        }
+
+        public boolean isConverged(){
+            return fit.getCount() >= kMinSamples && stableSolves >= kStableSolves;
         }
+
+        public void setPercentOut(double percentOut){
+            this.percentOut = percentOut;
+        }
+
     }
 
     private final Timer timer = new Timer();
-    private static final dtSide leftSide = new dtSide("Left", DrivetrainSubsystem.leftMotorA);
-    private static final dtSide rightSide = new dtSide("Right", DrivetrainSubsystem.rightMotorA);
+    private static final dtSide leftSide = new dtSide("Left",
+            () -> DrivetrainSubsystem.toMetersPerSecond(DrivetrainSubsystem.getLeftVelocity()), DrivetrainSubsystem::getLeftVoltage);
+    private static final dtSide rightSide = new dtSide("Right",
+            () -> DrivetrainSubsystem.toMetersPerSecond(DrivetrainSubsystem.getRightVelocity()), DrivetrainSubsystem::getRightVoltage);
     private static final dtSide[] sides = {leftSide, rightSide};
 
+    private double lastTimestamp;
+
     public CharacterizeDrive(){
         requires(Robot.drivetrain);
         setInterruptible(false);
     }
 
-    protected void initialize(){
-        applySpeeds();
+    protected void onInitialize(){
         for(dtSide side : sides){
-            if(side.speed >= 0.1){
-                side.addPoint();
-            }
+            side.reset();
         }
+        applySpeeds();
+        lastTimestamp = DrivetrainSubsystem.getTimestamp();
+        timer.reset();
         timer.start();
     }
 
@@ -92,7 +136,18 @@ public class CharacterizeDrive extends Command {
         DrivetrainSubsystem.drive(leftSide.percentOut, rightSide.percentOut);
     }
 
-    protected void execute(){
+    protected void onExecute(){
+        //Uses the snapshot timestamp so dt matches when the encoders were actually read
+        double timestamp = DrivetrainSubsystem.getTimestamp();
+        double dt = timestamp - lastTimestamp;
+        lastTimestamp = timestamp;
+
+        for(dtSide side : sides){
+            side.addPoint(dt);
+            side.update();
+        }
+
+        //Each 0.25 V step also gives the fit an acceleration transient for kA
         if(timer.hasPeriodPassed(1.0)){
             for(dtSide side : sides){
                 side.setPercentOut(side.percentOut += 0.25/12);
@@ -103,17 +158,38 @@ public class CharacterizeDrive extends Command {
     }
 
     protected boolean isFinished(){
-        return(leftSide.percentOut >= 0.3 && rightSide.percentOut >= 0.3);
+        boolean converged = leftSide.isConverged() && rightSide.isConverged();
+        return converged || (leftSide.percentOut >= 0.3 && rightSide.percentOut >= 0.3);
     }
 
-    protected void end(){
+    protected void onEnd(){
         DrivetrainSubsystem.drive(0, 0);
 
+        GainsFile gains = new GainsFile("drivetrain");
+        boolean solved = true;
+
         for(dtSide side : sides){
-            for(Triple dataPoints : side.dataPoints){
-                side.regression.addData(dataPoints.x, dataPoints.y);
+            if(!side.fit.solve()){
+                System.out.println(side.side + " side: not enough data to fit");
+                solved = false;
+                continue;
             }
-            System.out.println(side.side + " side: Slope: " + side.regression.getSlope() + ", Intercept: " + side.regression.getIntercept() + ", Linearity: " + side.regression.getRSquare());
+
+            //Saved under the gear the robot is in, low gear keeps the plain left/right keys
+            String prefix = DrivetrainSubsystem.getGear().key(side.side.toLowerCase());
+            gains.set(prefix + ".kS", side.fit.getCoefficient(0));
+            gains.set(prefix + ".kV", side.fit.getCoefficient(1));
+            gains.set(prefix + ".kA", side.fit.getCoefficient(2));
+
+            System.out.println(side.side + " side (" + DrivetrainSubsystem.getGear() + " gear): kS: " + side.fit.getCoefficient(0)
+                    + " V, kV: " + side.fit.getCoefficient(1)
+                    + " V/(m/s), kA: " + side.fit.getCoefficient(2) + " V/(m/s^2), R^2: " + side.fit.getRSquared()
+                    + ", samples: " + side.fit.getCount());
+        }
+
+        if(solved){
+            gains.save("Drivetrain feedforward from CharacterizeDrive");
+            DrivetrainSubsystem.loadGains();
         }
     }
 
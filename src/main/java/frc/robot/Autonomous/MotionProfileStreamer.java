@@ -0,0 +1,259 @@
+package frc.robot.Autonomous;
+
+import com.ctre.phoenix.ErrorCode;
+import com.ctre.phoenix.motion.MotionProfileStatus;
+import com.ctre.phoenix.motion.SetValueMotionProfile;
+import com.ctre.phoenix.motion.TrajectoryPoint;
+import com.ctre.phoenix.motion.TrajectoryPoint.TrajectoryDuration;
+import com.ctre.phoenix.motorcontrol.ControlMode;
+
+import edu.wpi.first.wpilibj.Notifier;
+import frc.robot.Drivetrain.DrivetrainSubsystem;
+import frc.robot.Hardware.ShadowTalonSRX;
+import frc.robot.Telemetry.Telemetry;
+import jaci.pathfinder.Trajectory;
+
+/**
+ * Streams a TankTrajectory into the left and right leader Talons' motion profile buffers, so
+ * the Talons run the position + velocity closed loop themselves at the point rate
+ *
+ * Points are pushed into the top level (RoboRIO side) buffer a few at a time from update(), and a
+ * Notifier at half the point duration calls processMotionProfileBuffer() to move them down to
+ * the Talons. The profile is held disabled until both Talons have kMinBufferedPoints, then
+ * enabled together, and switched to Hold on the last point. Java only watches the buffer
+ * counts, underruns and closed loop error.
+ *
+ * Positions are sent relative to where each encoder is when start() is called. The Talons have no
+ * heading feedback here, so there is no gyro correction in this mode.
+ */
+public class MotionProfileStreamer {
+
+    private static final int kTimeout = 10;
+
+    // Talon slot used for the profile, slot 0 stays as it was for Motion Magic
+    private static final int kProfileSlot = 1;
+    private static final double kProfileP = 0.3;
+
+    // Points that have to be on both Talons before the profile is enabled
+    private static final int kMinBufferedPoints = 10;
+
+    // Points pushed into the top buffer per update(), keeps each loop's JNI calls bounded
+    private static final int kPointsPerUpdate = 50;
+
+    private final ShadowTalonSRX leftTalon, rightTalon;
+    private final Notifier processor;
+
+    private final TrajectoryPoint point = new TrajectoryPoint();
+    private final MotionProfileStatus leftStatus = new MotionProfileStatus();
+    private final MotionProfileStatus rightStatus = new MotionProfileStatus();
+
+    private TankTrajectory trajectory;
+    private TrajectoryDuration duration;
+    private double leftStart, rightStart;
+    private int leftPushed, rightPushed;
+
+    private SetValueMotionProfile output = SetValueMotionProfile.Disable;
+    private boolean streaming = false, finished = false, failed = false;
+    private int underruns;
+
+    private static final int kLeftBuffered = Telemetry.register("MP left buffered", 0.1, 0);
+    private static final int kRightBuffered = Telemetry.register("MP right buffered", 0.1, 0);
+    private static final int kLeftError = Telemetry.register("MP left error", 0.02, 0);
+    private static final int kRightError = Telemetry.register("MP right error", 0.02, 0);
+    private static final int kUnderruns = Telemetry.register("MP underruns", 0.1, 0);
+
+    public MotionProfileStreamer(ShadowTalonSRX left, ShadowTalonSRX right) {
+        leftTalon = left;
+        rightTalon = right;
+        processor = new Notifier(this::process);
+    }
+
+    /**
+     * Clears anything left on the Talons, configures the profile slot and starts streaming;
+     * the profile is enabled from update() once enough points are buffered
+     */
+    public void start(TankTrajectory trajectory) {
+        this.trajectory = trajectory;
+        leftPushed = 0;
+        rightPushed = 0;
+        underruns = 0;
+        output = SetValueMotionProfile.Disable;
+        finished = false;
+        failed = false;
+
+        if (trajectory.length() == 0) {
+            finished = true;
+            return;
+        }
+
+        double dt = trajectory.left.segments[0].dt;
+        duration = toDuration(dt);
+        if (duration == null) {
+            System.out.println("Motion profile: a " + dt * 1000 + " ms point duration isn't supported by the Talons");
+            failed = true;
+            return;
+        }
+
+        for (ShadowTalonSRX talon : new ShadowTalonSRX[] { leftTalon, rightTalon }) {
+            talon.set(ControlMode.MotionProfile, SetValueMotionProfile.Disable.value);
+            talon.clearMotionProfileTrajectories();
+            talon.clearMotionProfileHasUnderrun(kTimeout);
+            // Durations come with each point
+            talon.configMotionProfileTrajectoryPeriod(0, kTimeout);
+            // Bottom buffer fills twice as fast as the points are used
+            talon.changeMotionControlFramePeriod((int) Math.max(1, dt * 1000 / 2));
+            talon.config_kF(kProfileSlot, DrivetrainSubsystem.toTalonKf(DrivetrainSubsystem.getAverageKv()), kTimeout);
+            talon.config_kP(kProfileSlot, kProfileP, kTimeout);
+            talon.config_kI(kProfileSlot, 0, kTimeout);
+            talon.config_kD(kProfileSlot, 0, kTimeout);
+        }
+
+        leftStart = leftTalon.getSelectedSensorPosition(0);
+        rightStart = rightTalon.getSelectedSensorPosition(0);
+
+        fill();
+        streaming = true;
+        processor.startPeriodic(dt / 2);
+    }
+
+    private static TrajectoryDuration toDuration(double dt) {
+        switch ((int) Math.round(dt * 1000)) {
+        case 5:
+            return TrajectoryDuration.Trajectory_Duration_5ms;
+        case 10:
+            return TrajectoryDuration.Trajectory_Duration_10ms;
+        case 20:
+            return TrajectoryDuration.Trajectory_Duration_20ms;
+        case 30:
+            return TrajectoryDuration.Trajectory_Duration_30ms;
+        case 40:
+            return TrajectoryDuration.Trajectory_Duration_40ms;
+        case 50:
+            return TrajectoryDuration.Trajectory_Duration_50ms;
+        case 100:
+            return TrajectoryDuration.Trajectory_Duration_100ms;
+        default:
+            return null;
+        }
+    }
+
+    // Runs on the Notifier thread
+    private void process() {
+        leftTalon.processMotionProfileBuffer();
+        rightTalon.processMotionProfileBuffer();
+    }
+
+    /**
+     * Call every loop while the profile runs: tops up the buffers, enables or holds the profile
+     * and publishes the buffer state
+     */
+    public void update() {
+        if (!streaming) {
+            return;
+        }
+
+        fill();
+
+        leftTalon.getMotionProfileStatus(leftStatus);
+        rightTalon.getMotionProfileStatus(rightStatus);
+
+        if (leftStatus.hasUnderrun || rightStatus.hasUnderrun) {
+            underruns++;
+            if (leftStatus.hasUnderrun) {
+                leftTalon.clearMotionProfileHasUnderrun(0);
+            }
+            if (rightStatus.hasUnderrun) {
+                rightTalon.clearMotionProfileHasUnderrun(0);
+            }
+        }
+
+        int length = trajectory.length();
+        if (output == SetValueMotionProfile.Disable) {
+            int needed = Math.min(kMinBufferedPoints, length);
+            if (leftStatus.btmBufferCnt >= needed && rightStatus.btmBufferCnt >= needed) {
+                output = SetValueMotionProfile.Enable;
+            }
+        } else if (output == SetValueMotionProfile.Enable) {
+            // Both sides are on their last point, which they keep servoing to in Hold
+            if (leftStatus.activePointValid && leftStatus.isLast && rightStatus.activePointValid && rightStatus.isLast) {
+                output = SetValueMotionProfile.Hold;
+                finished = true;
+            }
+        }
+
+        leftTalon.set(ControlMode.MotionProfile, output.value);
+        rightTalon.set(ControlMode.MotionProfile, output.value);
+
+        Telemetry.put(kLeftBuffered, leftStatus.btmBufferCnt);
+        Telemetry.put(kRightBuffered, rightStatus.btmBufferCnt);
+        Telemetry.put(kLeftError, leftTalon.getClosedLoopError(0));
+        Telemetry.put(kRightError, rightTalon.getClosedLoopError(0));
+        Telemetry.put(kUnderruns, underruns);
+    }
+
+    // Pushes the next points into each top buffer until it is full or kPointsPerUpdate went in
+    private void fill() {
+        leftPushed = fill(leftTalon, trajectory.left, leftStart, leftPushed);
+        rightPushed = fill(rightTalon, trajectory.right, rightStart, rightPushed);
+    }
+
+    private int fill(ShadowTalonSRX talon, Trajectory path, double start, int next) {
+        int length = trajectory.length();
+        int end = Math.min(length, next + kPointsPerUpdate);
+        while (next < end && !talon.isMotionProfileTopLevelBufferFull()) {
+            Trajectory.Segment segment = path.segments[next];
+            point.position = start + segment.position * DrivetrainSubsystem.kTicksPerMeter;
+            point.velocity = segment.velocity * DrivetrainSubsystem.kTicksPerMeter / 10;
+            point.headingDeg = 0;
+            point.auxiliaryPos = 0;
+            point.profileSlotSelect0 = kProfileSlot;
+            point.profileSlotSelect1 = 0;
+            point.zeroPos = false;
+            point.isLastPoint = next == length - 1;
+            point.timeDur = duration;
+
+            ErrorCode error = talon.pushMotionProfileTrajectory(point);
+            if (error != ErrorCode.OK) {
+                System.out.println("Motion profile: push failed on Talon " + talon.getDeviceID() + ": " + error);
+                failed = true;
+                break;
+            }
+            next++;
+        }
+        return next;
+    }
+
+    // True once the Talons have enabled the profile, so the reference clock can start with them
+    public boolean isEnabled() {
+        return output != SetValueMotionProfile.Disable;
+    }
+
+    // True once both Talons are holding the last point
+    public boolean isFinished() {
+        return finished;
+    }
+
+    // True if the profile couldn't be streamed; the caller should stop
+    public boolean hasFailed() {
+        return failed;
+    }
+
+    public int getUnderruns() {
+        return underruns;
+    }
+
+    /**
+     * Stops the Notifier, clears both buffers and leaves the Talons at neutral
+     */
+    public void stop() {
+        if (streaming) {
+            processor.stop();
+            streaming = false;
+        }
+        leftTalon.clearMotionProfileTrajectories();
+        rightTalon.clearMotionProfileTrajectories();
+        leftTalon.set(ControlMode.PercentOutput, 0);
+        rightTalon.set(ControlMode.PercentOutput, 0);
+    }
+
+}
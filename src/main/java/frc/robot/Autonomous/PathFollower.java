@@ -1,25 +1,92 @@
 package frc.robot.Autonomous;
 
-import java.io.File;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
-import edu.wpi.first.wpilibj.command.Command;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import frc.robot.Robot;
+import frc.robot.Diagnostics.ProfiledCommand;
+import frc.robot.Drivetrain.DriveLoop;
 import frc.robot.Drivetrain.DrivetrainSubsystem;
+import frc.robot.Drivetrain.Odometry;
+import frc.robot.Drivetrain.Pose;
+import frc.robot.Telemetry.Telemetry;
 import jaci.pathfinder.Pathfinder;
 import jaci.pathfinder.Trajectory;
 import jaci.pathfinder.Waypoint;
-import jaci.pathfinder.followers.EncoderFollower;
-import jaci.pathfinder.modifiers.TankModifier;
 
-public class PathFollower extends Command{
+public class PathFollower extends ProfiledCommand{
+
+    public enum Mode {
+        //Each wheel follows its own distance profile (PDVA), with a proportional gyro correction
+        ENCODER,
+        //Ramsete on the odometry pose, wheel velocities turned into outputs with the characterized feedforward
+        RAMSETE,
+        //Both sides streamed into the Talons' motion profile buffers, the Talons close the loop; no gyro correction
+        MOTION_PROFILE;
+    }
+
+    private Mode mode = Mode.ENCODER;
 
     //Constant values for PIDVA correction
     private double kP = 0, kI = 0, kD = 0, kV = 1/2.872716583788768, kA = 0;
-    private double maxSpeed = 2, maxAccel = 1, maxJerk = 15; //These only apply to the Waypoint[] constructor
+    private static final double maxSpeed = 2, maxAccel = 1; //These only apply to the Waypoint[] constructor
+    private static final double maxCentripetal = 1.5, maxVoltage = 10;
 
     Trajectory trajecLeft, trajecRight;
-    EncoderFollower followerLeft, followerRight;
+    TrajectoryFollower followerLeft, followerRight;
+
+    //Installed on DriveLoop while it is running so the path is tracked at the fast loop rate
+    private final DriveLoop.Controller fastLoopStep = this::step;
+
+    //Installed on DriveLoop in MOTION_PROFILE mode so the loop doesn't overwrite the Talons' profile with a setpoint
+    private final DriveLoop.Controller profileStep = () -> {};
+
+    //Created on first use so prebuilt routines don't each hold a Notifier
+    private MotionProfileStreamer streamer;
+    private boolean profileStarted;
+
+    //Trajectory that is still being generated by TrajectoryService, null once it has been picked up
+    private Future<TankTrajectory> pendingTrajectory;
+    private boolean failed = false;
+
+    //Gyro heading when the path started, Pathfinder headings are relative to it
+    private double startHeading;
+
+    //Ramsete mode gains, tuned against DrivetrainPlant with a 10% weaker left side; the wheel P is
+    //percent output per m/s of wheel velocity error, on top of the feedforward
+    private static final double kRamseteB = 5.0, kRamseteZeta = 0.7;
+    private static final double kWheelVelocityP = 0.2;
+    private final RamseteController ramsete = new RamseteController(kRamseteB, kRamseteZeta);
+
+    //Odometry pose when the path started; path coordinates are relative to the first segment, so this maps them onto the field
+    private final Pose startPose = new Pose();
+    private double pathStartX, pathStartY, pathStartHeading;
+    private final Pose pose = new Pose();
+    private final Pose reference = new Pose();
+
+    //Tracking error against the path centre, in the path's frame, for either mode
+    private double alongTrackError, crossTrackError, headingError;
+    private double maxCrossTrackError, crossTrackSquaredSum, maxHeadingError;
+    private int trackingSamples;
+
+    //Path tuning values are published every loop so dashboard graphs stay smooth
+    private static final int kPathGyroHeading = Telemetry.register("Path Gyro Heading", 0.02, 0);
+    private static final int kPathLeftEncError = Telemetry.register("Path left enc error", 0.02, 0);
+    private static final int kPathRightEncError = Telemetry.register("Path right enc error", 0.02, 0);
+    private static final int kPathPositionRight = Telemetry.register("Path Position Right", 0.02, 0);
+    private static final int kPathPositionLeft = Telemetry.register("Path Position Left", 0.02, 0);
+    private static final int kPathVelocityLeft = Telemetry.register("Path Velocity Left", 0.02, 0);
+    private static final int kPathVelocityRight = Telemetry.register("Path Velocity Right", 0.02, 0);
+    private static final int kPathCommandedLeftSpeed = Telemetry.register("Path commanded left speed", 0.02, 0);
+    private static final int kPathCommandedRightSpeed = Telemetry.register("Path commanded right speed", 0.02, 0);
+    private static final int kRobotPositionRight = Telemetry.register("Robot Position Right", 0.02, 0);
+    private static final int kRobotPositionLeft = Telemetry.register("Robot Position Left", 0.02, 0);
+    private static final int kRobotVelocityRight = Telemetry.register("Robot Velocity Right", 0.02, 0);
+    private static final int kRobotVelocityLeft = Telemetry.register("Robot Velocity Left", 0.02, 0);
+    private static final int kPathAlongTrackError = Telemetry.register("Path along track error", 0.02, 0);
+    private static final int kPathCrossTrackError = Telemetry.register("Path cross track error", 0.02, 0);
+    private static final int kPathHeadingError = Telemetry.register("Path heading error", 0.02, 0);
 
     //Robot measurements (in meters)
     private static double kWheelDiameter = 0.1524; //6 in.
@@ -28,98 +95,299 @@ public class PathFollower extends Command{
     //Constructor for command that takes a String path name
     public PathFollower(String pathName){
 
-        DrivetrainSubsystem.resetEncoders();
-
         requires(Robot.drivetrain);
 
-        trajecLeft = Pathfinder.readFromCSV(new File("/home/lvuser/profiles/" + pathName + "_left.csv"));
-        trajecRight = Pathfinder.readFromCSV(new File("/home/lvuser/profiles/" + pathName + "_right.csv"));
+        //Profiles are loaded into TrajectoryCache during robotInit, so this does no file I/O
+        TankTrajectory trajectory = TrajectoryCache.get(pathName);
+        trajecLeft = trajectory.left;
+        trajecRight = trajectory.right;
     }
 
-    //Constructor for command that takes a Waypoint array object
+    //Constructor for command that takes a Waypoint array object, the path is generated in the background
+    //by TrajectoryGenerator, slowing down for curvature and staying within the voltage the feedforward has
     public PathFollower(Waypoint[] points){
+        this(TrajectoryService.generate(points, new TrajectoryGenerator.Config(0.02, maxSpeed, maxAccel, kWheelbase)
+                .maxCentripetal(maxCentripetal)
+                .maxVoltage(maxVoltage, DrivetrainSubsystem.getAverageKs(), DrivetrainSubsystem.getAverageKv(),
+                        DrivetrainSubsystem.getAverageKa())));
+    }
 
-        requires(Robot.drivetrain);
+    //Constructor for command that takes a trajectory that may still be generating, it starts once the trajectory is ready
+    public PathFollower(Future<TankTrajectory> trajectory){
 
-        Trajectory.Config pointsConfig = new Trajectory.Config(Trajectory.FitMethod.HERMITE_CUBIC, Trajectory.Config.SAMPLES_LOW, 0.02, maxSpeed, maxAccel, maxJerk);
-        Trajectory pointsTrajec = Pathfinder.generate(points, pointsConfig);
+        requires(Robot.drivetrain);
 
-        TankModifier modifier = new TankModifier(pointsTrajec);
-        modifier.modify(kWheelbase);
+        pendingTrajectory = trajectory;
+    }
 
-        trajecLeft = modifier.getLeftTrajectory();
-        trajecRight = modifier.getRightTrajectory();
+    /**
+     * Picks how the path is tracked, ENCODER by default
+     *
+     * @return this, so it can be chained onto the constructor
+     */
+    public PathFollower setMode(Mode mode){
+        this.mode = mode;
+        return this;
     }
 
     //This method runs only once when the Command is initialized
-    protected void initialize(){
-        //Resets current heading and encoder values to avoid errors
-        DrivetrainSubsystem.resetGyro();
-        DrivetrainSubsystem.resetEncoders();
+    protected void onInitialize(){
+        //Encoders and heading are measured relative to where the path starts, so nothing is reset
         DrivetrainSubsystem.setBrakeMode();
 
-        //Creating EncoderFollower objects from Trajectory objects in constructors
-        followerLeft = new EncoderFollower(trajecLeft);
-        followerRight = new EncoderFollower(trajecRight);
+        followerLeft = null;
+        followerRight = null;
+
+        if(isTrajectoryReady()){
+            startFollowing();
+        }
+    }
+
+    /**
+     * Picks up a pending trajectory without blocking the main loop
+     *
+     * @return true once trajecLeft and trajecRight are available
+     */
+    private boolean isTrajectoryReady(){
+        if(pendingTrajectory == null){
+            return true;
+        } else if(!pendingTrajectory.isDone()){
+            return false;
+        }
+
+        try {
+            TankTrajectory trajectory = pendingTrajectory.get();
+            trajecLeft = trajectory.left;
+            trajecRight = trajectory.right;
+            pendingTrajectory = null;
+            return true;
+        } catch (InterruptedException | ExecutionException | CancellationException e) {
+            System.out.println("Path generation failed: " + e.getMessage());
+            failed = true;
+            return false;
+        }
+    }
+
+    private void startFollowing(){
+        //Creating time indexed followers from Trajectory objects, so they track correctly at any loop rate
+        TrajectoryFollower left = new TrajectoryFollower(trajecLeft);
+        TrajectoryFollower right = new TrajectoryFollower(trajecRight);
 
         //Sets encoders for error calculation
-        followerLeft.configureEncoder(DrivetrainSubsystem.leftMotorA.getSelectedSensorPosition(0),
-                4517, kWheelDiameter);
-        followerRight.configureEncoder(DrivetrainSubsystem.rightMotorA.getSelectedSensorPosition(0),
-                4517, kWheelDiameter);
+        left.configureEncoder(DrivetrainSubsystem.getLeftPosition(), DrivetrainSubsystem.kTicksPerMeter);
+        right.configureEncoder(DrivetrainSubsystem.getRightPosition(), DrivetrainSubsystem.kTicksPerMeter);
+
+        //Configures PDVA values (kI is unused, as it was by EncoderFollower)
+        left.configurePDVA(kP, kD, kV, kA);
+        right.configurePDVA(kP, kD, kV, kA);
+
+        startHeading = DrivetrainSubsystem.getHeading();
+
+        Odometry.getPose(startPose);
+        if(trajecLeft.length() > 0 && trajecRight.length() > 0){
+            Trajectory.Segment firstLeft = trajecLeft.segments[0], firstRight = trajecRight.segments[0];
+            pathStartX = (firstLeft.x + firstRight.x) / 2;
+            pathStartY = (firstLeft.y + firstRight.y) / 2;
+            pathStartHeading = firstRight.heading;
+        }
 
-        //Configures PIDVA values 
-        followerLeft.configurePIDVA(kP, kI, kD, kV, kA);
-        followerRight.configurePIDVA(kP, kI, kD, kV, kA);
+        maxCrossTrackError = 0;
+        crossTrackSquaredSum = 0;
+        maxHeadingError = 0;
+        trackingSamples = 0;
 
+        double startTime = DrivetrainSubsystem.getTimestamp();
+        left.start(startTime);
+        right.start(startTime);
+
+        followerLeft = left;
+        followerRight = right;
+
+        if(mode == Mode.MOTION_PROFILE){
+            if(streamer == null){
+                streamer = new MotionProfileStreamer(DrivetrainSubsystem.leftMotorA, DrivetrainSubsystem.rightMotorA);
+            }
+            profileStarted = false;
+            streamer.start(new TankTrajectory(trajecLeft, trajecRight));
+        }
     }
 
     //execute() is called every 20 ms (RoboRIO default loop rate) 
-    protected void execute() {
+    protected void onExecute() {
+
+        //Waits for a background generated path without stalling the scheduler
+        if(followerLeft == null){
+            if(!isTrajectoryReady()){
+                DrivetrainSubsystem.drive(0, 0);
+                return;
+            }
+            startFollowing();
+        }
+
+        if(mode == Mode.MOTION_PROFILE){
+            monitorProfile();
+            return;
+        }
+
+        //With the fast loop running the path is stepped from there instead
+        if(DriveLoop.isRunning()){
+            DriveLoop.setController(fastLoopStep);
+            return;
+        }
+
+        step();
+    }
+
+    //One tracking step; runs on the main loop, or on the DriveLoop thread when that is running
+    private void step() {
+
+        //Encoder values and time from the latest sensor snapshot
+        int leftPosition = DrivetrainSubsystem.getLeftPosition();
+        int rightPosition = DrivetrainSubsystem.getRightPosition();
+        double time = DrivetrainSubsystem.getTimestamp();
 
         //Calculates left and right motor outputs based on a given encoder value 
-        double left = followerLeft.calculate(DrivetrainSubsystem.leftMotorA.getSelectedSensorPosition(0));
-        double right = followerRight.calculate(DrivetrainSubsystem.rightMotorA.getSelectedSensorPosition(0));
+        double left = followerLeft.calculate(leftPosition, time);
+        double right = followerRight.calculate(rightPosition, time);
 
         //left = processIntercept(left, 0.968);
         //right = processIntercept(right, 1.058);
 
         //Gyro proportional correction
-        double gyroHeading = -DrivetrainSubsystem.gyro.getAngle(); //Inverts gyro to make it left hand positive like Pathfinder
-        SmartDashboard.putNumber("Path Gyro Heading", gyroHeading);
-        double desiredHeading = Pathfinder.r2d(followerRight.getHeading());
-        double angleDifference = Pathfinder.boundHalfDegrees(desiredHeading - gyroHeading);
-        double turn = .8 * (-1.0/80.0) * angleDifference;
+        double gyroHeading = -(DrivetrainSubsystem.getHeading() - startHeading); //Inverts gyro to make it left hand positive like Pathfinder
+        Telemetry.put(kPathGyroHeading, gyroHeading);
+        double turn = headingCorrection(followerRight.getHeading(), gyroHeading);
 
         double leftspeed = left+turn + 0.968/12;
         double rightspeed = right-turn + 1.058/12;
 
+        Trajectory.Segment leftSetpoint = followerLeft.getSegment(), rightSetpoint = followerRight.getSegment();
+        updateTrackingError(leftSetpoint, rightSetpoint);
+
+        if(mode == Mode.RAMSETE){
+            //Centre velocities of the reference, then Ramsete's correction split back onto the wheels
+            double referenceVelocity = (leftSetpoint.velocity + rightSetpoint.velocity) / 2;
+            double referenceAngularVelocity = (rightSetpoint.velocity - leftSetpoint.velocity) / kWheelbase;
+            ramsete.calculate(pose, reference, referenceVelocity, referenceAngularVelocity);
+
+            double leftVelocity = ramsete.getVelocity() - ramsete.getAngularVelocity() * kWheelbase / 2;
+            double rightVelocity = ramsete.getVelocity() + ramsete.getAngularVelocity() * kWheelbase / 2;
+
+            double measuredLeft = DrivetrainSubsystem.toMetersPerSecond(DrivetrainSubsystem.getLeftVelocity());
+            double measuredRight = DrivetrainSubsystem.toMetersPerSecond(DrivetrainSubsystem.getRightVelocity());
+
+            leftspeed = DrivetrainSubsystem.getLeftFeedforward(leftVelocity, leftSetpoint.acceleration) / 12
+                    + kWheelVelocityP * (leftVelocity - measuredLeft);
+            rightspeed = DrivetrainSubsystem.getRightFeedforward(rightVelocity, rightSetpoint.acceleration) / 12
+                    + kWheelVelocityP * (rightVelocity - measuredRight);
+        }
+
         
         //Checks if the follower is finished before calling .getSegment() to avoid runtime errors
         if(!followerLeft.isFinished()){
-            SmartDashboard.putNumber("Path left enc error", toTicks(followerLeft.getSegment().position)-DrivetrainSubsystem.leftMotorA.getSelectedSensorPosition(0));
-            SmartDashboard.putNumber("Path right enc error", toTicks(followerRight.getSegment().position)-DrivetrainSubsystem.rightMotorA.getSelectedSensorPosition(0));
+            Telemetry.put(kPathLeftEncError, toTicks(followerLeft.getSegment().position)-leftPosition);
+            Telemetry.put(kPathRightEncError, toTicks(followerRight.getSegment().position)-rightPosition);
             //SmartDashboard.putNumber("Left path encoder", DrivetrainSubsystem.leftMotorA.getSelectedSensorPosition(0));
             //SmartDashboard.putNumber("Right path encoder", DrivetrainSubsystem.rightMotorA.getSelectedSensorPosition(0)); 
-            SmartDashboard.putNumber("Path Position Right", followerRight.getSegment().position);
-            SmartDashboard.putNumber("Path Position Left", followerLeft.getSegment().position);
-            SmartDashboard.putNumber("Path Velocity Left", followerLeft.getSegment().velocity);
-            SmartDashboard.putNumber("Path Velocity Right", followerRight.getSegment().velocity);
+            Telemetry.put(kPathPositionRight, followerRight.getSegment().position);
+            Telemetry.put(kPathPositionLeft, followerLeft.getSegment().position);
+            Telemetry.put(kPathVelocityLeft, followerLeft.getSegment().velocity);
+            Telemetry.put(kPathVelocityRight, followerRight.getSegment().velocity);
         }
 
-        SmartDashboard.putNumber("Path commanded left speed", leftspeed);
-        SmartDashboard.putNumber("Path commanded right speed", rightspeed);
+        Telemetry.put(kPathCommandedLeftSpeed, leftspeed);
+        Telemetry.put(kPathCommandedRightSpeed, rightspeed);
 
-        SmartDashboard.putNumber("Robot Position Right", toMeters(DrivetrainSubsystem.rightMotorA.getSelectedSensorPosition(0)));
-        SmartDashboard.putNumber("Robot Position Left", toMeters(DrivetrainSubsystem.leftMotorA.getSelectedSensorPosition(0)));
+        Telemetry.put(kRobotPositionRight, toMeters(rightPosition));
+        Telemetry.put(kRobotPositionLeft, toMeters(leftPosition));
 
-        SmartDashboard.putNumber("Robot Velocity Right", toMeters(DrivetrainSubsystem.rightMotorA.getSelectedSensorVelocity(0)));
-        SmartDashboard.putNumber("Robot Velocity Left", toMeters(DrivetrainSubsystem.leftMotorA.getSelectedSensorVelocity(0)));
+        Telemetry.put(kRobotVelocityRight, toMeters(DrivetrainSubsystem.getRightVelocity()));
+        Telemetry.put(kRobotVelocityLeft, toMeters(DrivetrainSubsystem.getLeftVelocity()));
 
         
         DrivetrainSubsystem.drive(leftspeed, rightspeed); //Drives at calculated speeds
     }
 
+    //The Talons follow the streamed profile; this only keeps the buffers topped up and measures tracking error
+    private void monitorProfile() {
+        if(DriveLoop.isRunning()){
+            DriveLoop.setController(profileStep);
+        }
+
+        streamer.update();
+
+        //The reference clock starts when the Talons enable the profile, not when streaming started
+        double time = DrivetrainSubsystem.getTimestamp();
+        if(!profileStarted){
+            if(!streamer.isEnabled()){
+                return;
+            }
+            followerLeft.start(time);
+            followerRight.start(time);
+            profileStarted = true;
+        }
+
+        int leftPosition = DrivetrainSubsystem.getLeftPosition();
+        int rightPosition = DrivetrainSubsystem.getRightPosition();
+        followerLeft.calculate(leftPosition, time);
+        followerRight.calculate(rightPosition, time);
+        updateTrackingError(followerLeft.getSegment(), followerRight.getSegment());
+
+        Telemetry.put(kPathPositionLeft, followerLeft.getSegment().position);
+        Telemetry.put(kPathPositionRight, followerRight.getSegment().position);
+        Telemetry.put(kRobotPositionLeft, toMeters(leftPosition));
+        Telemetry.put(kRobotPositionRight, toMeters(rightPosition));
+    }
+
+    //Maps the path centre onto the field and measures the odometry pose against it
+    private void updateTrackingError(Trajectory.Segment leftSetpoint, Trajectory.Segment rightSetpoint){
+        double dx = (leftSetpoint.x + rightSetpoint.x) / 2 - pathStartX;
+        double dy = (leftSetpoint.y + rightSetpoint.y) / 2 - pathStartY;
+        double rotation = startPose.theta - pathStartHeading;
+        double cos = Math.cos(rotation), sin = Math.sin(rotation);
+        reference.set(startPose.x + dx * cos - dy * sin, startPose.y + dx * sin + dy * cos, rightSetpoint.heading + rotation);
+
+        Odometry.getPose(pose);
+
+        double errorX = pose.x - reference.x, errorY = pose.y - reference.y;
+        double referenceCos = Math.cos(reference.theta), referenceSin = Math.sin(reference.theta);
+        alongTrackError = referenceCos * errorX + referenceSin * errorY;
+        crossTrackError = -referenceSin * errorX + referenceCos * errorY;
+        headingError = Math.IEEEremainder(pose.theta - reference.theta, 2 * Math.PI);
+
+        maxCrossTrackError = Math.max(maxCrossTrackError, Math.abs(crossTrackError));
+        maxHeadingError = Math.max(maxHeadingError, Math.abs(headingError));
+        crossTrackSquaredSum += crossTrackError * crossTrackError;
+        trackingSamples++;
+
+        Telemetry.put(kPathAlongTrackError, alongTrackError);
+        Telemetry.put(kPathCrossTrackError, crossTrackError);
+        Telemetry.put(kPathHeadingError, Math.toDegrees(headingError));
+    }
+
+    protected void onEnd() {
+        DriveLoop.clearController(fastLoopStep);
+        DriveLoop.clearController(profileStep);
+
+        //Stops at the end of the path instead of holding the last output into the next command
+        DrivetrainSubsystem.drive(0, 0);
+
+        if(streamer != null && mode == Mode.MOTION_PROFILE){
+            streamer.stop();
+            if(streamer.getUnderruns() > 0){
+                System.out.println("Path (MOTION_PROFILE) buffer underran " + streamer.getUnderruns() + " times");
+            }
+        }
+
+        if(trackingSamples > 0){
+            System.out.println(String.format("Path (%s) final error %.1f cm along, %.1f cm cross, %.1f deg; "
+                    + "cross track max %.1f cm, rms %.1f cm; heading max %.1f deg",
+                    mode, alongTrackError * 100, crossTrackError * 100, Math.toDegrees(headingError),
+                    maxCrossTrackError * 100, Math.sqrt(crossTrackSquaredSum / trackingSamples) * 100,
+                    Math.toDegrees(maxHeadingError)));
+        }
+    }
+
     /* Uses dimensional analysis to convert meters to encoder ticks
      *
      *          39.3701 in     1 revolution       4517 encoder ticks
@@ -134,11 +402,32 @@ public class PathFollower extends Command{
         return ((ticks/4517.0)*6*Math.PI)*254;
     }
 
+    /**
+     * Proportional turn correction toward the path heading
+     *
+     * @param desiredHeading   Pathfinder heading in radians
+     * @param gyroHeading      measured heading in degrees, left hand positive like Pathfinder
+     * @return                 turn to add to the left side and subtract from the right
+     */
+    public static double headingCorrection(double desiredHeading, double gyroHeading){
+        double angleDifference = Pathfinder.boundHalfDegrees(Pathfinder.r2d(desiredHeading) - gyroHeading);
+        return .8 * (-1.0/80.0) * angleDifference;
+    }
+
     public static double processIntercept(double commandedVoltage, double interceptVoltage){
         return commandedVoltage + interceptVoltage;
     }
 
     @Override
-    protected boolean isFinished() { return followerLeft.isFinished() && followerRight.isFinished(); } //Command is finished when both followers are finished
+    protected boolean isFinished() {
+        if(failed){
+            return true;
+        } else if(followerLeft == null){
+            return false;
+        } else if(mode == Mode.MOTION_PROFILE){
+            return streamer.isFinished() || streamer.hasFailed();
+        }
+        return followerLeft.isFinished() && followerRight.isFinished(); //Command is finished when both followers are finished
+    }
 
 }
\ No newline at end of file
@@ -0,0 +1,86 @@
+package frc.robot.Autonomous;
+
+import jaci.pathfinder.Waypoint;
+
+/**
+ * Quintic Hermite spline between two waypoints, parameterized by t from 0 to 1
+ *
+ * The start and end tangents point along the waypoint headings with a length of 1.2x the chord,
+ * and the second derivatives are zero at both ends, so consecutive splines join with matching
+ * heading and zero curvature.
+ */
+public class QuinticSpline {
+
+    private static final double kTangentScale = 1.2;
+
+    // Polynomial coefficients, x(t) = x0 + x1*t + ... + x5*t^5
+    private final double x0, x1, x2, x3, x4, x5;
+    private final double y0, y1, y2, y3, y4, y5;
+
+    /**
+     * @param start   waypoint in meters, heading in radians counter clockwise from +x
+     * @param end     same, at a different position from start
+     */
+    public QuinticSpline(Waypoint start, Waypoint end) {
+        double chord = Math.hypot(end.x - start.x, end.y - start.y);
+        if (chord == 0) {
+            throw new IllegalArgumentException("A spline needs two waypoints at different positions");
+        }
+        double scale = kTangentScale * chord;
+
+        double[] x = coefficients(start.x, scale * Math.cos(start.angle), end.x, scale * Math.cos(end.angle));
+        double[] y = coefficients(start.y, scale * Math.sin(start.angle), end.y, scale * Math.sin(end.angle));
+
+        x0 = x[0]; x1 = x[1]; x2 = x[2]; x3 = x[3]; x4 = x[4]; x5 = x[5];
+        y0 = y[0]; y1 = y[1]; y2 = y[2]; y3 = y[3]; y4 = y[4]; y5 = y[5];
+    }
+
+    // Hermite basis expanded into powers of t, with zero second derivative at both ends
+    private static double[] coefficients(double p0, double v0, double p1, double v1) {
+        return new double[] {
+            p0,
+            v0,
+            0,
+            -10 * p0 - 6 * v0 - 4 * v1 + 10 * p1,
+            15 * p0 + 8 * v0 + 7 * v1 - 15 * p1,
+            -6 * p0 - 3 * v0 - 3 * v1 + 6 * p1
+        };
+    }
+
+    public double getX(double t) {
+        return x0 + t * (x1 + t * (x2 + t * (x3 + t * (x4 + t * x5))));
+    }
+
+    public double getY(double t) {
+        return y0 + t * (y1 + t * (y2 + t * (y3 + t * (y4 + t * y5))));
+    }
+
+    public double getDX(double t) {
+        return x1 + t * (2 * x2 + t * (3 * x3 + t * (4 * x4 + t * 5 * x5)));
+    }
+
+    public double getDY(double t) {
+        return y1 + t * (2 * y2 + t * (3 * y3 + t * (4 * y4 + t * 5 * y5)));
+    }
+
+    public double getDDX(double t) {
+        return 2 * x2 + t * (6 * x3 + t * (12 * x4 + t * 20 * x5));
+    }
+
+    public double getDDY(double t) {
+        return 2 * y2 + t * (6 * y3 + t * (12 * y4 + t * 20 * y5));
+    }
+
+    // Radians, counter clockwise from +x
+    public double getHeading(double t) {
+        return Math.atan2(getDY(t), getDX(t));
+    }
+
+    // 1/m, positive when turning counter clockwise (left)
+    public double getCurvature(double t) {
+        double dx = getDX(t), dy = getDY(t);
+        double speedSquared = dx * dx + dy * dy;
+        return (dx * getDDY(t) - dy * getDDX(t)) / (speedSquared * Math.sqrt(speedSquared));
+    }
+
+}
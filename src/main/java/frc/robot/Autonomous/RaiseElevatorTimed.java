@@ -1,11 +1,10 @@
 package frc.robot.Autonomous;
 
-import edu.wpi.first.wpilibj.command.Command;
 import frc.robot.Robot;
-import frc.robot.Elevator.Elevate;
+import frc.robot.Diagnostics.ProfiledCommand;
 import frc.robot.Elevator.ElevatorSubsystem;
 
-public class RaiseElevatorTimed extends Command{
+public class RaiseElevatorTimed extends ProfiledCommand{
     private double timeout;
     private double speed;
 
@@ -15,17 +14,17 @@ public class RaiseElevatorTimed extends Command{
         this.speed = speed;
     }
 
-    protected void initialize(){
+    protected void onInitialize(){
         System.out.println("Raising elevator at " + speed*100 + " percent for " + timeout +" seconds!");
         setTimeout(timeout);
     }
 
-    protected void execute(){
+    protected void onExecute(){
         ElevatorSubsystem.elevate(-0.4);
     }
 
-    protected void end(){
-        ElevatorSubsystem.elevate(Elevate.holdVoltage);
+    protected void onEnd(){
+        ElevatorSubsystem.hold();
     }
 
     protected boolean isFinished(){
@@ -0,0 +1,75 @@
+package frc.robot.Autonomous;
+
+import frc.robot.Drivetrain.Pose;
+
+/**
+ * Ramsete nonlinear tracking controller for a differential drive
+ *
+ * Takes the reference pose and velocities and the measured pose (all field relative) and
+ * returns the linear and angular velocity that pull the robot back onto the path, including
+ * cross-track error that per-wheel followers never see.
+ *
+ * Results are left in getVelocity() and getAngularVelocity() so a loop can reuse one instance
+ * without allocating.
+ */
+public class RamseteController {
+
+    // Defaults from the Ramsete paper, for meters and radians
+    public static final double kDefaultB = 2.0;
+    public static final double kDefaultZeta = 0.7;
+
+    private final double b, zeta;
+
+    private double velocity, angularVelocity;
+
+    /**
+     * @param b      aggressiveness of the correction, > 0
+     * @param zeta   damping, between 0 and 1
+     */
+    public RamseteController(double b, double zeta) {
+        this.b = b;
+        this.zeta = zeta;
+    }
+
+    public RamseteController() {
+        this(kDefaultB, kDefaultZeta);
+    }
+
+    /**
+     * @param pose              measured pose
+     * @param reference         pose the robot should be at
+     * @param referenceVelocity      m/s
+     * @param referenceAngularVelocity   rad/s, counter clockwise positive
+     */
+    public void calculate(Pose pose, Pose reference, double referenceVelocity, double referenceAngularVelocity) {
+        double dx = reference.x - pose.x;
+        double dy = reference.y - pose.y;
+        double cos = Math.cos(pose.theta), sin = Math.sin(pose.theta);
+
+        // Error in the robot's frame
+        double errorX = cos * dx + sin * dy;
+        double errorY = -sin * dx + cos * dy;
+        double errorTheta = Math.IEEEremainder(reference.theta - pose.theta, 2 * Math.PI);
+
+        double k = 2 * zeta * Math.sqrt(referenceAngularVelocity * referenceAngularVelocity
+                + b * referenceVelocity * referenceVelocity);
+
+        velocity = referenceVelocity * Math.cos(errorTheta) + k * errorX;
+        angularVelocity = referenceAngularVelocity + k * errorTheta + b * referenceVelocity * sinc(errorTheta) * errorY;
+    }
+
+    private static double sinc(double x) {
+        return Math.abs(x) < 1e-9 ? 1 : Math.sin(x) / x;
+    }
+
+    // m/s
+    public double getVelocity() {
+        return velocity;
+    }
+
+    // rad/s, counter clockwise positive
+    public double getAngularVelocity() {
+        return angularVelocity;
+    }
+
+}
@@ -0,0 +1,22 @@
+package frc.robot.Autonomous;
+
+import jaci.pathfinder.Trajectory;
+
+/**
+ * Left and right side trajectories for one path, kept together so the pair can be
+ * cached, generated and handed to a PathFollower as a single object
+ */
+public class TankTrajectory {
+
+    public final Trajectory left, right;
+
+    public TankTrajectory(Trajectory left, Trajectory right) {
+        this.left = left;
+        this.right = right;
+    }
+
+    public int length() {
+        return Math.min(left.length(), right.length());
+    }
+
+}
@@ -0,0 +1,98 @@
+package frc.robot.Autonomous;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import jaci.pathfinder.Pathfinder;
+
+/**
+ * Holds every deployed path profile in memory so building a PathFollower by name
+ * does no file I/O or text parsing
+ *
+ * loadAll() is meant to be called from robotInit; it converts any CSV pairs that do not have
+ * an up to date .traj file yet and then loads every .traj in the profile directory
+ */
+public class TrajectoryCache {
+
+    public static final String kProfileDirectory = "/home/lvuser/profiles";
+
+    private static final HashMap<String, TankTrajectory> trajectories = new HashMap<>();
+
+    public static synchronized void loadAll() {
+        loadAll(new File(kProfileDirectory));
+    }
+
+    public static synchronized void loadAll(File directory) {
+        if (!directory.isDirectory()) {
+            System.out.println("No profile directory at " + directory);
+            return;
+        }
+
+        //Converts CSV pairs that are new or were redeployed since the last conversion
+        long csvStart = System.nanoTime();
+        int converted = TrajectoryConverter.convertDirectory(directory, true);
+        if (converted > 0) {
+            System.out.println("Parsed and converted " + converted + " CSV profiles in "
+                    + (System.nanoTime() - csvStart) / 1e6 + " ms");
+        }
+
+        //Loads every binary profile into memory
+        File[] files = directory.listFiles();
+        if (files == null) {
+            System.out.println("Could not list " + directory);
+            return;
+        }
+        long binaryStart = System.nanoTime();
+        int loaded = 0;
+        for (File file : files) {
+            String fileName = file.getName();
+            if (!fileName.endsWith(TrajectoryConverter.kBinaryExtension)) {
+                continue;
+            }
+            String pathName = fileName.substring(0, fileName.length() - TrajectoryConverter.kBinaryExtension.length());
+
+            try {
+                trajectories.put(pathName, TrajectoryConverter.readBinary(file));
+                loaded++;
+            } catch (IOException e) {
+                System.out.println("Failed to load " + pathName + ": " + e.getMessage());
+            }
+        }
+        System.out.println("Loaded " + loaded + " binary profiles in " + (System.nanoTime() - binaryStart) / 1e6 + " ms");
+    }
+
+    /**
+     * Returns the cached trajectory for a path name; if the path was never loaded this falls back to
+     * reading the CSVs the old way (and logs it, since that is slow on the roboRIO)
+     */
+    public static synchronized TankTrajectory get(String pathName) {
+        TankTrajectory trajectory = trajectories.get(pathName);
+
+        if (trajectory == null) {
+            long start = System.nanoTime();
+            trajectory = new TankTrajectory(
+                    Pathfinder.readFromCSV(new File(kProfileDirectory, pathName + TrajectoryConverter.kLeftSuffix)),
+                    Pathfinder.readFromCSV(new File(kProfileDirectory, pathName + TrajectoryConverter.kRightSuffix)));
+            trajectories.put(pathName, trajectory);
+            System.out.println("Cache miss for " + pathName + ", CSV load took " + (System.nanoTime() - start) / 1e6 + " ms");
+        }
+
+        return trajectory;
+    }
+
+    public static synchronized boolean contains(String pathName) {
+        return trajectories.containsKey(pathName);
+    }
+
+    // Names of every loaded profile, sorted
+    public static synchronized List<String> getNames() {
+        List<String> names = new ArrayList<>(trajectories.keySet());
+        Collections.sort(names);
+        return names;
+    }
+
+}
@@ -0,0 +1,187 @@
+package frc.robot.Autonomous;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+
+import jaci.pathfinder.Trajectory;
+
+/**
+ * Reads and writes the binary trajectory format used by TrajectoryCache
+ *
+ * File layout (little endian):
+ *   int     magic ('TRJ1')
+ *   int     left segment count
+ *   int     right segment count
+ *   int     reserved
+ *   left segments, then right segments, each a fixed 64 byte record of
+ *   dt, x, y, position, velocity, acceleration, jerk, heading as doubles
+ *
+ * Can also be run on a laptop to convert Pathfinder CSVs before deploying:
+ *   java frc.robot.Autonomous.TrajectoryConverter src/main/deploy/profiles
+ */
+public class TrajectoryConverter {
+
+    public static final int kMagic = 0x314A5254; // "TRJ1" read as a little endian int
+    public static final int kHeaderBytes = 16;
+    public static final int kSegmentBytes = 8 * Double.BYTES;
+
+    public static final String kBinaryExtension = ".traj";
+    public static final String kLeftSuffix = "_left.csv", kRightSuffix = "_right.csv";
+
+    /**
+     * Parses a Pathfinder CSV (dt,x,y,position,velocity,acceleration,jerk,heading) in plain Java,
+     * so conversion also works off-robot where the Pathfinder JNI library is not loaded
+     */
+    public static Trajectory readCSV(File file) throws IOException {
+        ArrayList<Trajectory.Segment> segments = new ArrayList<>();
+
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                //Skips the header and any blank lines
+                if (line.isEmpty() || !(Character.isDigit(line.charAt(0)) || line.charAt(0) == '-' || line.charAt(0) == '.')) {
+                    continue;
+                }
+
+                String[] v = line.split(",");
+                if (v.length < 8) {
+                    throw new IOException("Bad trajectory row in " + file + ": " + line);
+                }
+                segments.add(new Trajectory.Segment(Double.parseDouble(v[0]), Double.parseDouble(v[1]),
+                        Double.parseDouble(v[2]), Double.parseDouble(v[3]), Double.parseDouble(v[4]),
+                        Double.parseDouble(v[5]), Double.parseDouble(v[6]), Double.parseDouble(v[7])));
+            }
+        }
+
+        return new Trajectory(segments.toArray(new Trajectory.Segment[segments.size()]));
+    }
+
+    public static void writeBinary(File file, TankTrajectory trajectory) throws IOException {
+        int left = trajectory.left.length();
+        int right = trajectory.right.length();
+
+        ByteBuffer buffer = ByteBuffer.allocate(kHeaderBytes + (left + right) * kSegmentBytes).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(kMagic).putInt(left).putInt(right).putInt(0);
+        putSegments(buffer, trajectory.left);
+        putSegments(buffer, trajectory.right);
+        buffer.flip();
+
+        try (FileOutputStream out = new FileOutputStream(file); FileChannel channel = out.getChannel()) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Memory maps a .traj file and copies it into Segment objects; there is no text parsing
+     */
+    public static TankTrajectory readBinary(File file) throws IOException {
+        try (FileInputStream in = new FileInputStream(file); FileChannel channel = in.getChannel()) {
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            map.order(ByteOrder.LITTLE_ENDIAN);
+
+            if (channel.size() < kHeaderBytes || map.getInt() != kMagic) {
+                throw new IOException(file + " is not a binary trajectory");
+            }
+            int left = map.getInt();
+            int right = map.getInt();
+            map.getInt();
+
+            // Checked in long so a corrupt header can't overflow or go negative past the size check
+            if (left < 0 || right < 0) {
+                throw new IOException(file + " has a negative segment count");
+            }
+            if (channel.size() != kHeaderBytes + ((long) left + right) * kSegmentBytes) {
+                throw new IOException(file + " is truncated");
+            }
+
+            return new TankTrajectory(getSegments(map, left), getSegments(map, right));
+        }
+    }
+
+    /**
+     * Converts every name_left.csv/name_right.csv pair in a directory into name.traj
+     *
+     * @return number of profiles converted
+     */
+    public static int convertDirectory(File directory) {
+        return convertDirectory(directory, false);
+    }
+
+    /**
+     * Converts name_left.csv/name_right.csv pairs into name.traj; a pair that fails to convert is
+     * logged and skipped so it doesn't stop the rest
+     *
+     * @param onlyStale   skip pairs whose .traj is at least as new as both CSVs
+     * @return number of profiles converted
+     */
+    public static int convertDirectory(File directory, boolean onlyStale) {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return 0;
+        }
+
+        int converted = 0;
+        for (File leftFile : files) {
+            String fileName = leftFile.getName();
+            if (!fileName.endsWith(kLeftSuffix)) {
+                continue;
+            }
+
+            String pathName = fileName.substring(0, fileName.length() - kLeftSuffix.length());
+            File rightFile = new File(directory, pathName + kRightSuffix);
+            if (!rightFile.exists()) {
+                System.out.println("No right side profile for " + pathName + ", skipping");
+                continue;
+            }
+
+            File binaryFile = new File(directory, pathName + kBinaryExtension);
+            if (onlyStale && binaryFile.lastModified() >= leftFile.lastModified()
+                    && binaryFile.lastModified() >= rightFile.lastModified()) {
+                continue;
+            }
+
+            try {
+                TankTrajectory trajectory = new TankTrajectory(readCSV(leftFile), readCSV(rightFile));
+                writeBinary(binaryFile, trajectory);
+                converted++;
+            } catch (IOException e) {
+                System.out.println("Failed to convert " + pathName + ": " + e.getMessage());
+            }
+        }
+        return converted;
+    }
+
+    private static void putSegments(ByteBuffer buffer, Trajectory trajectory) {
+        for (Trajectory.Segment s : trajectory.segments) {
+            buffer.putDouble(s.dt).putDouble(s.x).putDouble(s.y).putDouble(s.position)
+                    .putDouble(s.velocity).putDouble(s.acceleration).putDouble(s.jerk).putDouble(s.heading);
+        }
+    }
+
+    private static Trajectory getSegments(ByteBuffer buffer, int count) {
+        Trajectory.Segment[] segments = new Trajectory.Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Trajectory.Segment(buffer.getDouble(), buffer.getDouble(), buffer.getDouble(),
+                    buffer.getDouble(), buffer.getDouble(), buffer.getDouble(), buffer.getDouble(), buffer.getDouble());
+        }
+        return new Trajectory(segments);
+    }
+
+    public static void main(String... args) {
+        File directory = new File(args.length > 0 ? args[0] : TrajectoryCache.kProfileDirectory);
+        System.out.println("Converted " + convertDirectory(directory) + " profiles in " + directory);
+    }
+
+}
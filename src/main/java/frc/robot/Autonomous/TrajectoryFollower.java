@@ -0,0 +1,121 @@
+package frc.robot.Autonomous;
+
+import jaci.pathfinder.Trajectory;
+
+/**
+ * Encoder based trajectory follower, like Pathfinder's EncoderFollower but indexed by time
+ * instead of by call count
+ *
+ * EncoderFollower advances one segment every time calculate() is called, so it only tracks
+ * correctly when called exactly once per segment dt. This one looks the setpoint up (and
+ * interpolates between segments) from the time since start(), so it can run from the 20 ms loop,
+ * from DriveLoop at 5-10 ms, or survive a late loop without falling behind the path.
+ */
+public class TrajectoryFollower {
+
+    private final Trajectory trajectory;
+    private final double segmentDt;
+
+    private double kP, kD, kV, kA;
+    private int initialPosition;
+    private double ticksPerMeter;
+
+    private double startTime;
+    private double lastError, lastTime;
+    private boolean hasLastError = false;
+    private volatile boolean finished = false;
+
+    // Interpolated setpoint for the last calculate(), reused so following doesn't allocate
+    private final Trajectory.Segment setpoint = new Trajectory.Segment(0, 0, 0, 0, 0, 0, 0, 0);
+
+    public TrajectoryFollower(Trajectory trajectory) {
+        this.trajectory = trajectory;
+        this.segmentDt = trajectory.length() > 0 ? trajectory.segments[0].dt : 0.02;
+    }
+
+    public void configurePDVA(double kP, double kD, double kV, double kA) {
+        this.kP = kP;
+        this.kD = kD;
+        this.kV = kV;
+        this.kA = kA;
+    }
+
+    public void configureEncoder(int initialPosition, double ticksPerMeter) {
+        this.initialPosition = initialPosition;
+        this.ticksPerMeter = ticksPerMeter;
+    }
+
+    public void start(double time) {
+        startTime = time;
+        hasLastError = false;
+        finished = trajectory.length() == 0;
+    }
+
+    /**
+     * @param encoderTicks   current encoder position
+     * @param time           current time in seconds, on the same clock passed to start()
+     * @return               percent output (PDVA), 0 once the trajectory is finished
+     */
+    public double calculate(int encoderTicks, double time) {
+        double index = (time - startTime) / segmentDt;
+        int last = trajectory.length() - 1;
+
+        if (finished || index >= last) {
+            finished = true;
+            if (last >= 0) {
+                copy(trajectory.segments[last]);
+            }
+            return 0;
+        }
+
+        int i = Math.max(0, (int) index);
+        double t = Math.max(0, index - i);
+        Trajectory.Segment a = trajectory.segments[i], b = trajectory.segments[i + 1];
+        setpoint.dt = a.dt;
+        setpoint.x = a.x + (b.x - a.x) * t;
+        setpoint.y = a.y + (b.y - a.y) * t;
+        setpoint.position = a.position + (b.position - a.position) * t;
+        setpoint.velocity = a.velocity + (b.velocity - a.velocity) * t;
+        setpoint.acceleration = a.acceleration + (b.acceleration - a.acceleration) * t;
+        setpoint.jerk = a.jerk;
+        setpoint.heading = a.heading;
+
+        double distance = (encoderTicks - initialPosition) / ticksPerMeter;
+        double error = setpoint.position - distance;
+
+        double errorRate = 0;
+        if (hasLastError && time > lastTime) {
+            errorRate = (error - lastError) / (time - lastTime);
+        }
+        lastError = error;
+        lastTime = time;
+        hasLastError = true;
+
+        return kP * error + kD * errorRate + kV * setpoint.velocity + kA * setpoint.acceleration;
+    }
+
+    private void copy(Trajectory.Segment segment) {
+        setpoint.dt = segment.dt;
+        setpoint.x = segment.x;
+        setpoint.y = segment.y;
+        setpoint.position = segment.position;
+        setpoint.velocity = segment.velocity;
+        setpoint.acceleration = segment.acceleration;
+        setpoint.jerk = segment.jerk;
+        setpoint.heading = segment.heading;
+    }
+
+    public Trajectory.Segment getSegment() {
+        return setpoint;
+    }
+
+    // Heading of the current setpoint in radians
+    public double getHeading() {
+        return setpoint.heading;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+}
@@ -0,0 +1,240 @@
+package frc.robot.Autonomous;
+
+import jaci.pathfinder.Trajectory;
+import jaci.pathfinder.Waypoint;
+
+/**
+ * Pure Java replacement for Pathfinder.generate + TankModifier
+ *
+ * Waypoints are joined with QuinticSplines, which are sampled every kSampleSpacing meters of
+ * arc. Each sample gets a velocity limit from the configured constraints, a forward pass limits
+ * acceleration and a backward pass limits deceleration, and the result is resampled at a fixed
+ * dt into left and right Trajectory objects that PathFollower can use as is.
+ *
+ * Constraints, all optional except speed and acceleration:
+ *  - the faster wheel stays under maxSpeed, so tight turns slow the centre down
+ *  - centripetal acceleration v^2 * curvature stays under maxCentripetal
+ *  - the faster wheel's feedforward kS + kV*v + kA*a stays under maxVoltage
+ *
+ * There is no jerk limit. Output only depends on the inputs, so the same waypoints always give
+ * the same trajectory.
+ */
+public class TrajectoryGenerator {
+
+    private static final double kSampleSpacing = 0.01;
+
+    // Coarse samples per spline used to estimate its length before sampling it properly
+    private static final int kLengthEstimateSamples = 16;
+
+    public static class Config {
+        final double dt, maxSpeed, maxAccel, wheelbase;
+        double maxCentripetal = Double.POSITIVE_INFINITY;
+        double maxVoltage = Double.POSITIVE_INFINITY, kS = 0, kV = 0, kA = 0;
+
+        /**
+         * @param dt          time step of the generated segments in seconds
+         * @param maxSpeed    max wheel velocity in m/s
+         * @param maxAccel    max acceleration of the path centre in m/s^2
+         * @param wheelbase   distance between the left and right wheels in meters
+         */
+        public Config(double dt, double maxSpeed, double maxAccel, double wheelbase) {
+            this.dt = dt;
+            this.maxSpeed = maxSpeed;
+            this.maxAccel = maxAccel;
+            this.wheelbase = wheelbase;
+        }
+
+        // m/s^2
+        public Config maxCentripetal(double accel) {
+            maxCentripetal = accel;
+            return this;
+        }
+
+        /**
+         * @param voltage   largest feedforward voltage either side may need
+         * @param kS        volts
+         * @param kV        volts per m/s
+         * @param kA        volts per m/s^2, 0 if unknown
+         */
+        public Config maxVoltage(double voltage, double kS, double kV, double kA) {
+            maxVoltage = voltage;
+            this.kS = kS;
+            this.kV = kV;
+            this.kA = kA;
+            return this;
+        }
+
+        // Every value, for keying caches of generated paths
+        double[] values() {
+            return new double[] { dt, maxSpeed, maxAccel, wheelbase, maxCentripetal, maxVoltage, kS, kV, kA };
+        }
+    }
+
+    /**
+     * @param points   waypoints in meters, headings in radians counter clockwise
+     */
+    public static TankTrajectory generate(Waypoint[] points, Config config) {
+        if (points.length < 2) {
+            throw new IllegalArgumentException("A path needs at least two waypoints");
+        }
+
+        // Sample the splines by arc length
+        QuinticSpline[] splines = new QuinticSpline[points.length - 1];
+        int[] splineSamples = new int[splines.length];
+        int samples = 1;
+        for (int i = 0; i < splines.length; i++) {
+            // A zero chord gives zero tangents, and the curvature would come out NaN
+            if (points[i].x == points[i + 1].x && points[i].y == points[i + 1].y) {
+                throw new IllegalArgumentException("Waypoints " + i + " and " + (i + 1) + " are at the same position");
+            }
+            splines[i] = new QuinticSpline(points[i], points[i + 1]);
+            splineSamples[i] = Math.max(1, (int) Math.ceil(estimateLength(splines[i]) / kSampleSpacing));
+            samples += splineSamples[i];
+        }
+
+        double[] x = new double[samples], y = new double[samples];
+        double[] heading = new double[samples], curvature = new double[samples];
+        double[] distance = new double[samples];
+
+        int n = 0;
+        for (int i = 0; i < splines.length; i++) {
+            QuinticSpline spline = splines[i];
+            for (int j = (i == 0 ? 0 : 1); j <= splineSamples[i]; j++) {
+                double t = (double) j / splineSamples[i];
+                x[n] = spline.getX(t);
+                y[n] = spline.getY(t);
+                heading[n] = spline.getHeading(t);
+                curvature[n] = spline.getCurvature(t);
+                distance[n] = n == 0 ? 0 : distance[n - 1] + Math.hypot(x[n] - x[n - 1], y[n] - y[n - 1]);
+                n++;
+            }
+        }
+
+        // Heading unwrapped so interpolation never goes the long way round
+        for (int i = 1; i < samples; i++) {
+            heading[i] = heading[i - 1] + Math.IEEEremainder(heading[i] - heading[i - 1], 2 * Math.PI);
+        }
+
+        double halfWheelbase = config.wheelbase / 2;
+        double[] velocity = new double[samples];
+
+        // Velocity limit at each sample
+        for (int i = 0; i < samples; i++) {
+            double outer = 1 + Math.abs(curvature[i]) * halfWheelbase;
+            double limit = config.maxSpeed / outer;
+            if (curvature[i] != 0) {
+                limit = Math.min(limit, Math.sqrt(config.maxCentripetal / Math.abs(curvature[i])));
+            }
+            if (config.kV > 0) {
+                limit = Math.min(limit, (config.maxVoltage - config.kS) / (config.kV * outer));
+            }
+            velocity[i] = Math.max(0, limit);
+        }
+        velocity[0] = 0;
+        velocity[samples - 1] = 0;
+
+        // Forward pass: acceleration limit, including what voltage is left after kS and kV
+        for (int i = 1; i < samples; i++) {
+            double ds = distance[i] - distance[i - 1];
+            double accel = maxAcceleration(config, velocity[i - 1], curvature[i - 1]);
+            velocity[i] = Math.min(velocity[i], Math.sqrt(velocity[i - 1] * velocity[i - 1] + 2 * accel * ds));
+        }
+
+        // Backward pass: deceleration limit
+        for (int i = samples - 2; i >= 0; i--) {
+            double ds = distance[i + 1] - distance[i];
+            velocity[i] = Math.min(velocity[i], Math.sqrt(velocity[i + 1] * velocity[i + 1] + 2 * config.maxAccel * ds));
+        }
+
+        // Time at each sample
+        double[] time = new double[samples];
+        for (int i = 1; i < samples; i++) {
+            double ds = distance[i] - distance[i - 1];
+            double v = velocity[i - 1] + velocity[i];
+            time[i] = time[i - 1] + (v > 0 ? 2 * ds / v : 0);
+        }
+
+        return resample(config, x, y, heading, curvature, distance, velocity, time);
+    }
+
+    private static double maxAcceleration(Config config, double velocity, double curvature) {
+        double accel = config.maxAccel;
+        if (config.kA > 0) {
+            double outer = 1 + Math.abs(curvature) * config.wheelbase / 2;
+            double headroom = config.maxVoltage - config.kS - config.kV * velocity * outer;
+            accel = Math.min(accel, Math.max(0, headroom) / (config.kA * outer));
+        }
+        return accel;
+    }
+
+    private static double estimateLength(QuinticSpline spline) {
+        double length = 0;
+        double lastX = spline.getX(0), lastY = spline.getY(0);
+        for (int i = 1; i <= kLengthEstimateSamples; i++) {
+            double t = (double) i / kLengthEstimateSamples;
+            double x = spline.getX(t), y = spline.getY(t);
+            length += Math.hypot(x - lastX, y - lastY);
+            lastX = x;
+            lastY = y;
+        }
+        return length;
+    }
+
+    // Steps through the samples at a fixed dt, assuming constant acceleration between samples
+    private static TankTrajectory resample(Config config, double[] x, double[] y, double[] heading, double[] curvature,
+            double[] distance, double[] velocity, double[] time) {
+        int last = time.length - 1;
+        int count = (int) Math.ceil(time[last] / config.dt) + 1;
+        double halfWheelbase = config.wheelbase / 2;
+
+        Trajectory.Segment[] left = new Trajectory.Segment[count];
+        Trajectory.Segment[] right = new Trajectory.Segment[count];
+
+        double leftPosition = 0, rightPosition = 0;
+        double lastLeftVelocity = 0, lastRightVelocity = 0;
+        double lastLeftAccel = 0, lastRightAccel = 0;
+
+        int i = 0;
+        for (int k = 0; k < count; k++) {
+            double t = Math.min(k * config.dt, time[last]);
+            while (i < last - 1 && time[i + 1] < t) {
+                i++;
+            }
+
+            double ds = distance[i + 1] - distance[i];
+            double v0 = velocity[i];
+            double accel = ds > 0 ? (velocity[i + 1] * velocity[i + 1] - v0 * v0) / (2 * ds) : 0;
+            double tau = t - time[i];
+            double v = Math.max(0, v0 + accel * tau);
+            double fraction = ds > 0 ? Math.min(1, Math.max(0, (v0 * tau + 0.5 * accel * tau * tau) / ds)) : 0;
+
+            double cx = x[i] + fraction * (x[i + 1] - x[i]);
+            double cy = y[i] + fraction * (y[i + 1] - y[i]);
+            double h = heading[i] + fraction * (heading[i + 1] - heading[i]);
+            double c = curvature[i] + fraction * (curvature[i + 1] - curvature[i]);
+
+            double leftVelocity = v * (1 - c * halfWheelbase);
+            double rightVelocity = v * (1 + c * halfWheelbase);
+            if (k > 0) {
+                leftPosition += 0.5 * (leftVelocity + lastLeftVelocity) * config.dt;
+                rightPosition += 0.5 * (rightVelocity + lastRightVelocity) * config.dt;
+            }
+            double leftAccel = k > 0 ? (leftVelocity - lastLeftVelocity) / config.dt : 0;
+            double rightAccel = k > 0 ? (rightVelocity - lastRightVelocity) / config.dt : 0;
+
+            double sin = Math.sin(h), cos = Math.cos(h);
+            left[k] = new Trajectory.Segment(config.dt, cx - halfWheelbase * sin, cy + halfWheelbase * cos, leftPosition,
+                    leftVelocity, leftAccel, (leftAccel - lastLeftAccel) / config.dt, h);
+            right[k] = new Trajectory.Segment(config.dt, cx + halfWheelbase * sin, cy - halfWheelbase * cos, rightPosition,
+                    rightVelocity, rightAccel, (rightAccel - lastRightAccel) / config.dt, h);
+
+            lastLeftVelocity = leftVelocity;
+            lastRightVelocity = rightVelocity;
+            lastLeftAccel = leftAccel;
+            lastRightAccel = rightAccel;
+        }
+
+        return new TankTrajectory(new Trajectory(left), new Trajectory(right));
+    }
+
+}
@@ -0,0 +1,134 @@
+package frc.robot.Autonomous;
+
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import jaci.pathfinder.Pathfinder;
+import jaci.pathfinder.Trajectory;
+import jaci.pathfinder.Waypoint;
+import jaci.pathfinder.modifiers.TankModifier;
+
+/**
+ * Generates Waypoint based paths on a low priority worker thread so Pathfinder.generate,
+ * TankModifier.modify and TrajectoryGenerator never run inside the 20 ms main loop
+ *
+ * Requests with the same waypoints and config share one Future, so asking for a path twice
+ * only generates it once. A request that fails or is cancelled leaves the cache before its Future
+ * completes, so asking again generates it again instead of handing back the same failure.
+ */
+public class TrajectoryService {
+
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "TrajectoryService");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    private static final ConcurrentHashMap<Key, Future<TankTrajectory>> requests = new ConcurrentHashMap<>();
+
+    /**
+     * Queues a path for generation, or returns the pending/finished request for an identical path
+     *
+     * @param points      waypoints in meters and radians
+     * @param dt          time step of the generated segments in seconds
+     * @param maxSpeed    max velocity in m/s
+     * @param maxAccel    max acceleration in m/s^2
+     * @param maxJerk     max jerk in m/s^3
+     * @param wheelbase   distance between the left and right wheels in meters
+     */
+    public static Future<TankTrajectory> generate(Waypoint[] points, double dt, double maxSpeed, double maxAccel,
+            double maxJerk, double wheelbase) {
+        Key key = new Key(points, new double[] { dt, maxSpeed, maxAccel, maxJerk, wheelbase });
+
+        return submit(key, () -> {
+            long start = System.nanoTime();
+
+            Trajectory.Config config = new Trajectory.Config(Trajectory.FitMethod.HERMITE_CUBIC,
+                    Trajectory.Config.SAMPLES_LOW, dt, maxSpeed, maxAccel, maxJerk);
+            Trajectory trajectory = Pathfinder.generate(points, config);
+
+            TankModifier modifier = new TankModifier(trajectory);
+            modifier.modify(wheelbase);
+
+            System.out.println("Generated " + points.length + " waypoint path in " + (System.nanoTime() - start) / 1e6 + " ms");
+            return new TankTrajectory(modifier.getLeftTrajectory(), modifier.getRightTrajectory());
+        });
+    }
+
+    /**
+     * Queues a path for the in-tree quintic generator, or returns the pending/finished request for an identical path
+     *
+     * @param points   waypoints in meters and radians
+     */
+    public static Future<TankTrajectory> generate(Waypoint[] points, TrajectoryGenerator.Config config) {
+        // Config has more values than the Pathfinder overload, so the two kinds of request never share a key
+        return submit(new Key(points, config.values()), () -> {
+            long start = System.nanoTime();
+            TankTrajectory trajectory = TrajectoryGenerator.generate(points, config);
+            System.out.println("Generated " + points.length + " waypoint quintic path in " + (System.nanoTime() - start) / 1e6 + " ms");
+            return trajectory;
+        });
+    }
+
+    private static Future<TankTrajectory> submit(Key key, Callable<TankTrajectory> work) {
+        return requests.computeIfAbsent(key, k -> {
+            FutureTask<TankTrajectory> task = new FutureTask<TankTrajectory>(work) {
+                @Override
+                protected void setException(Throwable failure) {
+                    requests.remove(k, this);
+                    super.setException(failure);
+                }
+
+                @Override
+                public boolean cancel(boolean mayInterruptIfRunning) {
+                    requests.remove(k, this);
+                    return super.cancel(mayInterruptIfRunning);
+                }
+            };
+            executor.execute(task);
+            return task;
+        });
+    }
+
+    /**
+     * Drops finished requests from the cache; called from disabledInit so paths from the last
+     * match don't stay in memory
+     */
+    public static void clear() {
+        requests.values().removeIf(Future::isDone);
+    }
+
+    // Waypoint has no equals/hashCode, so requests are keyed on their raw values
+    private static final class Key {
+        private final double[] values;
+
+        Key(Waypoint[] points, double[] config) {
+            values = new double[points.length * 3 + config.length];
+
+            int i = 0;
+            for (Waypoint point : points) {
+                values[i++] = point.x;
+                values[i++] = point.y;
+                values[i++] = point.angle;
+            }
+            System.arraycopy(config, 0, values, i, config.length);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Key && Arrays.equals(values, ((Key) other).values);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(values);
+        }
+    }
+
+}
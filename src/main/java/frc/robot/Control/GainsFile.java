@@ -0,0 +1,71 @@
+package frc.robot.Control;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+
+/**
+ * Reads and writes characterization results as properties files under /home/lvuser/gains,
+ * so gains measured on the robot survive a redeploy and are picked up at startup
+ */
+public class GainsFile {
+
+    public static final String kDirectory = "/home/lvuser/gains";
+
+    private final File file;
+    private final Properties values = new Properties();
+
+    public GainsFile(String name) {
+        file = new File(kDirectory, name + ".properties");
+
+        if (file.exists()) {
+            try (InputStream in = new FileInputStream(file)) {
+                values.load(in);
+            } catch (IOException e) {
+                System.out.println("Could not read " + file + ", using defaults: " + e.getMessage());
+            }
+        }
+    }
+
+    public boolean exists() {
+        return file.exists();
+    }
+
+    public double get(String key, double defaultValue) {
+        String value = values.getProperty(key);
+        if (value == null) {
+            return defaultValue;
+        }
+
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            System.out.println("Bad value for " + key + " in " + file + ": " + value);
+            return defaultValue;
+        }
+    }
+
+    public void set(String key, double value) {
+        values.setProperty(key, Double.toString(value));
+    }
+
+    public void save(String comment) {
+        File directory = file.getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            System.out.println("Could not create " + directory + ", gains not saved");
+            return;
+        }
+
+        try (OutputStream out = new FileOutputStream(file)) {
+            values.store(out, comment);
+            System.out.println("Saved gains to " + file);
+        } catch (IOException e) {
+            System.out.println("Could not write " + file + ": " + e.getMessage());
+        }
+    }
+
+}
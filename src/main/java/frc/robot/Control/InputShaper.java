@@ -0,0 +1,163 @@
+package frc.robot.Control;
+
+import java.util.Arrays;
+
+/**
+ * Shapes one driver axis through a fixed list of stages, e.g.
+ *
+ *   private final InputShaper throttle = new InputShaper().deadband(0.03).expo(2).slew(4);
+ *
+ * Stages are assembled once when the command is built; calculate() then runs them in order
+ * without allocating. The expo stage reads a precomputed table instead of calling Math.pow,
+ * and slew keeps its own state, so each axis needs its own InputShaper.
+ */
+public class InputShaper {
+
+    public static final double kDefaultPeriod = 0.02;
+
+    interface Stage {
+        double apply(double input);
+
+        default void reset() {
+        }
+    }
+
+    private final double period;
+    private Stage[] stages = new Stage[0];
+
+    public InputShaper() {
+        this(kDefaultPeriod);
+    }
+
+    /**
+     * @param period   seconds between calculate() calls, only used by the slew stage
+     */
+    public InputShaper(double period) {
+        this.period = period;
+    }
+
+    private InputShaper add(Stage stage) {
+        stages = Arrays.copyOf(stages, stages.length + 1);
+        stages[stages.length - 1] = stage;
+        return this;
+    }
+
+    /**
+     * Zeroes inputs inside the deadband and rescales the rest so the output still covers
+     * 0 to 1 continuously (Drive.deadbandX before this class existed)
+     */
+    public InputShaper deadband(double deadband) {
+        double slope = 1 / (1 - deadband);
+        return add(input -> {
+            if (input > deadband) {
+                return (input - deadband) * slope;
+            } else if (input < -deadband) {
+                return (input + deadband) * slope;
+            }
+            return 0;
+        });
+    }
+
+    /**
+     * Lifts any nonzero output to at least minimum, rescaling so 1 stays 1; used to get over
+     * static friction (Drive.deadbandY before this class existed)
+     */
+    public InputShaper minimum(double minimum) {
+        double slope = 1 - minimum;
+        return add(input -> {
+            if (input > 0) {
+                return input * slope + minimum;
+            } else if (input < 0) {
+                return input * slope - minimum;
+            }
+            return 0;
+        });
+    }
+
+    /**
+     * Raises the magnitude to a power and keeps the sign, read from a lookup table over [0, 1]
+     */
+    public InputShaper expo(double power) {
+        return add(new Expo(power));
+    }
+
+    /**
+     * Limits how fast the output can change
+     *
+     * @param rate   largest change per second, e.g. 4 takes 0.25 s from 0 to full
+     */
+    public InputShaper slew(double rate) {
+        return add(new Slew(rate * period));
+    }
+
+    public InputShaper scale(double scale) {
+        return add(input -> input * scale);
+    }
+
+    public double calculate(double input) {
+        for (Stage stage : stages) {
+            input = stage.apply(input);
+        }
+        return input;
+    }
+
+    // Clears stage state (the slew limiter's last output), e.g. when a command restarts
+    public void reset() {
+        for (Stage stage : stages) {
+            stage.reset();
+        }
+    }
+
+    private static class Expo implements Stage {
+
+        private static final int kTableSize = 256;
+
+        private final double power;
+        private final double[] table = new double[kTableSize + 1];
+
+        Expo(double power) {
+            this.power = power;
+            for (int i = 0; i <= kTableSize; i++) {
+                table[i] = Math.pow((double) i / kTableSize, power);
+            }
+        }
+
+        @Override
+        public double apply(double input) {
+            double magnitude = Math.abs(input);
+            // Mixed outputs can go past 1, those rare cases get the exact value
+            if (magnitude >= 1) {
+                return Math.copySign(Math.pow(magnitude, power), input);
+            }
+
+            double position = magnitude * kTableSize;
+            int i = (int) position;
+            double t = position - i;
+            return Math.copySign(table[i] + (table[i + 1] - table[i]) * t, input);
+        }
+
+    }
+
+    private static class Slew implements Stage {
+
+        private final double maxChange;
+        private double last = 0;
+
+        Slew(double maxChange) {
+            this.maxChange = maxChange;
+        }
+
+        @Override
+        public double apply(double input) {
+            last += Math.max(-maxChange, Math.min(maxChange, input - last));
+            return last;
+        }
+
+        @Override
+        public void reset() {
+            last = 0;
+        }
+
+    }
+
+}
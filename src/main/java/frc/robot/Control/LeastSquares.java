@@ -0,0 +1,147 @@
+package frc.robot.Control;
+
+import java.util.Arrays;
+
+/**
+ * Online linear least squares fit of y = b0*x0 + b1*x1 + ... that only keeps the running
+ * sufficient statistics (X'X, X'y, y'y), so memory use doesn't grow with the number of samples
+ *
+ * All storage is allocated in the constructor; add() and solve() don't allocate.
+ */
+public class LeastSquares {
+
+    private final int n;
+    private final double[][] xtx;
+    private final double[] xty;
+    private double yty = 0, ySum = 0;
+    private long count = 0;
+
+    // Scratch space for solve(), an augmented [X'X | X'y] matrix
+    private final double[][] work;
+    private final double[] coefficients;
+    private boolean solved = false;
+
+    public LeastSquares(int parameters) {
+        n = parameters;
+        xtx = new double[n][n];
+        xty = new double[n];
+        work = new double[n][n + 1];
+        coefficients = new double[n];
+    }
+
+    /**
+     * Adds one sample
+     *
+     * @param x   regressors, length must match the number of parameters
+     * @param y   measured output
+     */
+    public void add(double[] x, double y) {
+        for (int i = 0; i < n; i++) {
+            for (int j = i; j < n; j++) {
+                xtx[i][j] += x[i] * x[j];
+            }
+            xty[i] += x[i] * y;
+        }
+        yty += y * y;
+        ySum += y;
+        count++;
+    }
+
+    /**
+     * Solves the normal equations with Gaussian elimination and partial pivoting
+     *
+     * @return false if there isn't enough data yet (the system is singular)
+     */
+    public boolean solve() {
+        solved = false;
+        if (count < n) {
+            return false;
+        }
+
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                work[i][j] = j >= i ? xtx[i][j] : xtx[j][i];
+            }
+            work[i][n] = xty[i];
+        }
+
+        for (int col = 0; col < n; col++) {
+            int pivot = col;
+            for (int row = col + 1; row < n; row++) {
+                if (Math.abs(work[row][col]) > Math.abs(work[pivot][col])) {
+                    pivot = row;
+                }
+            }
+            if (Math.abs(work[pivot][col]) < 1e-12) {
+                return false;
+            }
+
+            double[] swap = work[col];
+            work[col] = work[pivot];
+            work[pivot] = swap;
+
+            for (int row = col + 1; row < n; row++) {
+                double factor = work[row][col] / work[col][col];
+                for (int k = col; k <= n; k++) {
+                    work[row][k] -= factor * work[col][k];
+                }
+            }
+        }
+
+        for (int row = n - 1; row >= 0; row--) {
+            double sum = work[row][n];
+            for (int k = row + 1; k < n; k++) {
+                sum -= work[row][k] * coefficients[k];
+            }
+            coefficients[row] = sum / work[row][row];
+        }
+
+        solved = true;
+        return true;
+    }
+
+    public double getCoefficient(int i) {
+        return coefficients[i];
+    }
+
+    public boolean isSolved() {
+        return solved;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Coefficient of determination of the last solve(), from the sufficient statistics
+     */
+    public double getRSquared() {
+        if (!solved || count == 0) {
+            return 0;
+        }
+
+        // SSE = y'y - 2b'X'y + b'X'Xb
+        double sse = yty;
+        for (int i = 0; i < n; i++) {
+            sse -= 2 * coefficients[i] * xty[i];
+            for (int j = 0; j < n; j++) {
+                sse += coefficients[i] * coefficients[j] * (j >= i ? xtx[i][j] : xtx[j][i]);
+            }
+        }
+        double sst = yty - ySum * ySum / count;
+        return sst > 0 ? 1 - sse / sst : 0;
+    }
+
+    public void reset() {
+        for (int i = 0; i < n; i++) {
+            Arrays.fill(xtx[i], 0);
+            xty[i] = 0;
+            coefficients[i] = 0;
+        }
+        yty = 0;
+        ySum = 0;
+        count = 0;
+        solved = false;
+    }
+
+}
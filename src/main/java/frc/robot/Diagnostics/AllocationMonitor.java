@@ -0,0 +1,290 @@
+package frc.robot.Diagnostics;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.List;
+
+import frc.robot.Diagnostics.LoopProfiler.Mode;
+import frc.robot.Telemetry.Telemetry;
+
+/**
+ * Per-loop heap allocation and garbage collection statistics for the main robot thread
+ *
+ * Allocated bytes come from ThreadMXBean.getThreadAllocatedBytes and are recorded against the
+ * same section ids as LoopProfiler, kept separately for each robot mode. endLoop() reads the
+ * GarbageCollectorMXBeans once per loop; any loop in which a collection happened is logged
+ * together with its loop period, so GC pauses can be matched to overruns.
+ *
+ * In audit mode ProfiledCommand also records its initialize/execute/end, and dump() prints the
+ * top allocating sections. If the JVM doesn't support per-thread allocation counters only the
+ * GC statistics are kept.
+ */
+public class AllocationMonitor {
+
+    private static final int kMaxSections = LoopProfiler.kMaxSections;
+    private static final int kMaxGcEvents = 128;
+    private static final int kPublishLoops = 50;
+    private static final int kTopSections = 10;
+
+    private static final String kDumpDirectory = "/home/lvuser/loopstats";
+
+    private static final com.sun.management.ThreadMXBean threads = findThreadBean();
+    private static final GarbageCollectorMXBean[] collectors = findCollectors();
+
+    private static long threadId = -1;
+
+    // Bytes the measurement itself allocates (getThreadAllocatedBytes(long) builds arrays on Java 11)
+    private static long overhead = 0;
+
+    private static boolean audit = false;
+
+    private static final long[][] sectionBytes = new long[Mode.values().length][kMaxSections];
+    private static final long[][] sectionSamples = new long[Mode.values().length][kMaxSections];
+    private static final long[][] sectionMaxBytes = new long[Mode.values().length][kMaxSections];
+
+    // Whole loop, measured between endLoop() calls
+    private static long lastLoopBytes, lastLoopNs;
+    private static long lastGcCount, lastGcTime;
+    private static long windowBytes = 0;
+    private static int publishCounter = 0;
+
+    // Loops that contained a collection, as a ring buffer
+    private static final long[] gcLoopNs = new long[kMaxGcEvents];
+    private static final long[] gcCollections = new long[kMaxGcEvents];
+    private static final long[] gcTimeMs = new long[kMaxGcEvents];
+    private static final long[] gcLoopBytes = new long[kMaxGcEvents];
+    private static final Mode[] gcModes = new Mode[kMaxGcEvents];
+    private static int gcEvents = 0;
+
+    private static final int kLoopBytes = Telemetry.register("Alloc/loop KB", 1.0, 0);
+    private static final int kGcCount = Telemetry.register("Alloc/GC count", 1.0, 0);
+    private static final int kGcTime = Telemetry.register("Alloc/GC time ms", 1.0, 0);
+    private static final int kGcLoop = Telemetry.register("Alloc/last GC loop ms", 1.0, 0);
+
+    private static com.sun.management.ThreadMXBean findThreadBean() {
+        try {
+            java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            if (bean instanceof com.sun.management.ThreadMXBean) {
+                com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+                if (threadBean.isThreadAllocatedMemorySupported()) {
+                    threadBean.setThreadAllocatedMemoryEnabled(true);
+                    return threadBean;
+                }
+            }
+        } catch (LinkageError | UnsupportedOperationException e) {
+            // Stripped down runtimes may not ship jdk.management
+        }
+        System.out.println("Per-thread allocation counters aren't available, only GC statistics are recorded");
+        return null;
+    }
+
+    private static GarbageCollectorMXBean[] findCollectors() {
+        List<GarbageCollectorMXBean> beans = ManagementFactory.getGarbageCollectorMXBeans();
+        return beans.toArray(new GarbageCollectorMXBean[0]);
+    }
+
+    /**
+     * Binds the monitor to the calling thread; call once from robotInit
+     */
+    public static void init() {
+        threadId = Thread.currentThread().getId();
+        if (threads != null) {
+            // Two back to back reads differ only by what the read itself allocated
+            long first = threads.getThreadAllocatedBytes(threadId);
+            overhead = threads.getThreadAllocatedBytes(threadId) - first;
+        }
+        lastLoopBytes = allocatedBytes();
+        lastLoopNs = System.nanoTime();
+        lastGcCount = gcCount();
+        lastGcTime = gcTime();
+    }
+
+    public static void setAudit(boolean enabled) {
+        audit = enabled;
+    }
+
+    public static boolean isAuditing() {
+        return audit;
+    }
+
+    private static long allocatedBytes() {
+        return threads != null && threadId >= 0 ? threads.getThreadAllocatedBytes(threadId) : 0;
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean collector : collectors) {
+            count += Math.max(0, collector.getCollectionCount());
+        }
+        return count;
+    }
+
+    // Accumulated collection time in ms, as reported by the collectors
+    private static long gcTime() {
+        long time = 0;
+        for (GarbageCollectorMXBean collector : collectors) {
+            time += Math.max(0, collector.getCollectionTime());
+        }
+        return time;
+    }
+
+    public static long start() {
+        return allocatedBytes();
+    }
+
+    // Records the bytes allocated since start (from start()) against a LoopProfiler section
+    public static void stop(int id, long start) {
+        if (threads == null || threadId < 0) {
+            return;
+        }
+        long bytes = Math.max(0, allocatedBytes() - start - overhead);
+
+        int m = LoopProfiler.getMode().ordinal();
+        sectionBytes[m][id] += bytes;
+        sectionSamples[m][id]++;
+        if (bytes > sectionMaxBytes[m][id]) {
+            sectionMaxBytes[m][id] = bytes;
+        }
+    }
+
+    // Like start(), but only measures in audit mode; returns -1 otherwise
+    public static long startAudit() {
+        return audit ? start() : -1;
+    }
+
+    public static void stopAudit(int id, long start) {
+        if (start >= 0) {
+            stop(id, start);
+        }
+    }
+
+    /**
+     * Call once at the end of every loop (from robotPeriodic); reads the GC counters and logs the
+     * loop if a collection happened since the last call
+     */
+    public static void endLoop() {
+        long now = System.nanoTime();
+        long bytes = allocatedBytes();
+        long count = gcCount();
+        long time = gcTime();
+
+        long loopNs = now - lastLoopNs;
+        long loopBytes = Math.max(0, bytes - lastLoopBytes - overhead);
+        windowBytes += loopBytes;
+
+        if (count != lastGcCount) {
+            int slot = gcEvents % kMaxGcEvents;
+            gcLoopNs[slot] = loopNs;
+            gcCollections[slot] = count - lastGcCount;
+            gcTimeMs[slot] = time - lastGcTime;
+            gcLoopBytes[slot] = loopBytes;
+            gcModes[slot] = LoopProfiler.getMode();
+            gcEvents++;
+
+            Telemetry.put(kGcLoop, loopNs / 1e6);
+        }
+
+        lastLoopNs = now;
+        lastGcCount = count;
+        lastGcTime = time;
+
+        if (++publishCounter >= kPublishLoops) {
+            Telemetry.put(kLoopBytes, windowBytes / (double) publishCounter / 1024);
+            Telemetry.put(kGcCount, count);
+            Telemetry.put(kGcTime, time);
+            publishCounter = 0;
+            windowBytes = 0;
+        }
+
+        // Excludes this method's own reads from the next loop
+        lastLoopBytes = allocatedBytes();
+    }
+
+    /**
+     * Writes per-section allocation (largest first) and every logged GC loop to a file, prints the
+     * top allocating sections in audit mode, and clears the statistics; meant to be called from disabledInit
+     */
+    public static void dump() {
+        int sectionCount = LoopProfiler.getSectionCount();
+        if (!hasSamples(sectionCount) && gcEvents == 0) {
+            return;
+        }
+
+        File directory = new File(kDumpDirectory);
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            System.out.println("Could not create " + kDumpDirectory + ", allocation stats not saved");
+            return;
+        }
+
+        Integer[] order = new Integer[sectionCount];
+        File file = new File(directory, "alloc-" + System.currentTimeMillis() + ".txt");
+        try (PrintWriter writer = new PrintWriter(file)) {
+            writer.println("mode,section,samples,total_bytes,mean_bytes,max_bytes");
+            for (Mode mode : Mode.values()) {
+                int m = mode.ordinal();
+                sortByBytes(order, m);
+
+                for (int rank = 0; rank < sectionCount; rank++) {
+                    int id = order[rank];
+                    long samples = sectionSamples[m][id];
+                    if (samples == 0) {
+                        continue;
+                    }
+                    writer.println(mode + "," + LoopProfiler.getName(id) + "," + samples + "," + sectionBytes[m][id] + ","
+                            + sectionBytes[m][id] / samples + "," + sectionMaxBytes[m][id]);
+
+                    if (audit && rank < kTopSections) {
+                        System.out.println("Alloc " + mode + " #" + (rank + 1) + " " + LoopProfiler.getName(id) + ": "
+                                + sectionBytes[m][id] / samples + " B/call, " + sectionBytes[m][id] + " B total");
+                    }
+                }
+            }
+
+            writer.println();
+            writer.println("mode,loop_ms,collections,gc_ms,loop_bytes");
+            int first = Math.max(0, gcEvents - kMaxGcEvents);
+            for (int event = first; event < gcEvents; event++) {
+                int slot = event % kMaxGcEvents;
+                writer.println(gcModes[slot] + "," + gcLoopNs[slot] / 1e6 + "," + gcCollections[slot] + ","
+                        + gcTimeMs[slot] + "," + gcLoopBytes[slot]);
+            }
+        } catch (FileNotFoundException e) {
+            System.out.println("Could not write allocation stats: " + e.getMessage());
+            return;
+        }
+
+        reset();
+    }
+
+    private static void sortByBytes(Integer[] order, int m) {
+        for (int id = 0; id < order.length; id++) {
+            order[id] = id;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(sectionBytes[m][b], sectionBytes[m][a]));
+    }
+
+    private static boolean hasSamples(int sectionCount) {
+        for (long[] modeSamples : sectionSamples) {
+            for (int id = 0; id < sectionCount; id++) {
+                if (modeSamples[id] > 0) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    public static void reset() {
+        for (int m = 0; m < sectionBytes.length; m++) {
+            Arrays.fill(sectionBytes[m], 0);
+            Arrays.fill(sectionSamples[m], 0);
+            Arrays.fill(sectionMaxBytes[m], 0);
+        }
+        gcEvents = 0;
+    }
+
+}
@@ -0,0 +1,174 @@
+package frc.robot.Diagnostics;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * High rate sample logger that keeps file writes and allocation off the control loop
+ *
+ * Samples go into preallocated blocks of primitive columns. When a block fills it is handed to a
+ * background writer thread and an empty block is taken from the pool; if the writer falls
+ * behind, rows are dropped and counted instead of stalling the loop.
+ *
+ * File layout (big endian), readable with LogConverter:
+ *   int     magic ('RLOG')
+ *   int     column count
+ *   for each column: short name length, UTF-8 name bytes
+ *   blocks: int row count, then each column's values as row count doubles
+ */
+public class BlockLogger {
+
+    public static final int kMagic = 0x524C4F47; // "RLOG"
+
+    private static final int kRowsPerBlock = 256;
+    private static final int kBlocks = 8;
+
+    private static final class Block {
+        final double[][] columns;
+        int rows;
+
+        Block(int columnCount) {
+            columns = new double[columnCount][kRowsPerBlock];
+        }
+    }
+
+    // Queued after the last block to tell the writer to close the file
+    private final Block endMarker = new Block(0);
+
+    private final ArrayBlockingQueue<Block> free = new ArrayBlockingQueue<>(kBlocks);
+    private final ArrayBlockingQueue<Block> full = new ArrayBlockingQueue<>(kBlocks + 1);
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final int columnCount;
+
+    private Block current;
+    private long droppedRows = 0;
+    private boolean closed = false;
+
+    public BlockLogger(File file, String... columns) throws IOException {
+        columnCount = columns.length;
+        for (int i = 0; i < kBlocks; i++) {
+            free.add(new Block(columnCount));
+        }
+        current = free.poll();
+
+        buffer = ByteBuffer.allocateDirect(Integer.BYTES + columnCount * kRowsPerBlock * Double.BYTES);
+        channel = new FileOutputStream(file).getChannel();
+
+        //Header is written here, before the writer thread owns the channel
+        byte[][] names = new byte[columnCount][];
+        int headerBytes = 2 * Integer.BYTES;
+        for (int i = 0; i < columnCount; i++) {
+            names[i] = columns[i].getBytes(StandardCharsets.UTF_8);
+            headerBytes += Short.BYTES + names[i].length;
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(headerBytes);
+        header.putInt(kMagic).putInt(columnCount);
+        for (byte[] name : names) {
+            header.putShort((short) name.length).put(name);
+        }
+        header.flip();
+        writeFully(header);
+
+        Thread writer = new Thread(this::writeBlocks, "BlockLogger " + file.getName());
+        writer.setDaemon(true);
+        writer.setPriority(Thread.MIN_PRIORITY);
+        writer.start();
+    }
+
+    /**
+     * Sets a value in the current row; columns are in the order given to the constructor
+     */
+    public void set(int column, double value) {
+        if (current != null) {
+            current.columns[column][current.rows] = value;
+        }
+    }
+
+    /**
+     * Finishes the current row and moves to the next one
+     */
+    public void endRow() {
+        if (current == null) {
+            //Every block is waiting on the writer, try to pick one back up
+            current = free.poll();
+            droppedRows++;
+            return;
+        }
+
+        if (++current.rows == kRowsPerBlock) {
+            full.offer(current);
+            current = free.poll();
+        }
+    }
+
+    public long getDroppedRows() {
+        return droppedRows;
+    }
+
+    /**
+     * Hands the last partial block to the writer, which closes the file once it is written
+     */
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        if (current != null && current.rows > 0) {
+            full.offer(current);
+        }
+        current = null;
+        full.offer(endMarker);
+
+        if (droppedRows > 0) {
+            System.out.println("BlockLogger dropped " + droppedRows + " rows");
+        }
+    }
+
+    private void writeBlocks() {
+        try {
+            while (true) {
+                Block block = full.take();
+                if (block == endMarker) {
+                    break;
+                }
+
+                buffer.clear();
+                buffer.putInt(block.rows);
+                for (double[] column : block.columns) {
+                    for (int row = 0; row < block.rows; row++) {
+                        buffer.putDouble(column[row]);
+                    }
+                }
+                buffer.flip();
+                writeFully(buffer);
+
+                block.rows = 0;
+                free.offer(block);
+            }
+        } catch (InterruptedException | IOException e) {
+            System.out.println("BlockLogger stopped: " + e.getMessage());
+        } finally {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                System.out.println("BlockLogger could not close its file: " + e.getMessage());
+            }
+        }
+    }
+
+    private void writeFully(ByteBuffer data) throws IOException {
+        while (data.hasRemaining()) {
+            channel.write(data);
+        }
+    }
+
+}
@@ -0,0 +1,79 @@
+package frc.robot.Diagnostics;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Offline converter from BlockLogger files to CSV, run on a laptop after copying logs off the robot:
+ *   java frc.robot.Diagnostics.LogConverter measure_velocity-123.rlog [more files...]
+ *
+ * Each input file is written next to itself with a .csv extension.
+ */
+public class LogConverter {
+
+    public static void convert(File input, File output) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(input)));
+                PrintWriter out = new PrintWriter(output)) {
+
+            if (in.readInt() != BlockLogger.kMagic) {
+                throw new IOException(input + " is not a BlockLogger file");
+            }
+
+            int columnCount = in.readInt();
+            String[] names = new String[columnCount];
+            for (int i = 0; i < columnCount; i++) {
+                byte[] name = new byte[in.readShort()];
+                in.readFully(name);
+                names[i] = new String(name, StandardCharsets.UTF_8);
+            }
+            out.println(String.join(",", names));
+
+            while (true) {
+                int rows;
+                try {
+                    rows = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+
+                double[][] block = new double[columnCount][rows];
+                for (int column = 0; column < columnCount; column++) {
+                    for (int row = 0; row < rows; row++) {
+                        block[column][row] = in.readDouble();
+                    }
+                }
+
+                StringBuilder line = new StringBuilder();
+                for (int row = 0; row < rows; row++) {
+                    line.setLength(0);
+                    for (int column = 0; column < columnCount; column++) {
+                        if (column > 0) {
+                            line.append(',');
+                        }
+                        line.append(block[column][row]);
+                    }
+                    out.println(line);
+                }
+            }
+        }
+    }
+
+    public static void main(String... args) throws IOException {
+        for (String path : args) {
+            File input = new File(path);
+            String name = input.getName();
+            int extension = name.lastIndexOf('.');
+            File output = new File(input.getParentFile(), (extension > 0 ? name.substring(0, extension) : name) + ".csv");
+
+            convert(input, output);
+            System.out.println("Wrote " + output);
+        }
+    }
+
+}
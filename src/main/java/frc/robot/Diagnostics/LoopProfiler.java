@@ -0,0 +1,215 @@
+package frc.robot.Diagnostics;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import frc.robot.Telemetry.Telemetry;
+
+/**
+ * Timing histograms for the parts of the main loop (scheduler, robotPeriodic and every
+ * ProfiledCommand's initialize/execute/end), kept separately for each robot mode
+ *
+ * Everything is preallocated when a section is registered, so recording a sample is a couple of
+ * array writes. Only meant to be used from the main robot thread.
+ */
+public class LoopProfiler {
+
+    public enum Mode {
+        DISABLED, AUTONOMOUS, TELEOP, TEST;
+    }
+
+    static final int kMaxSections = 64;
+    // Sections registered once the others are taken all share this last one
+    static final int kOverflowSection = kMaxSections - 1;
+
+    // 50 us wide buckets up to 20 ms, plus one overflow bucket for anything slower
+    private static final long kBucketWidthNs = 50_000;
+    private static final int kBuckets = 401;
+
+    // Stats are pushed to Telemetry every this many loops
+    private static final int kPublishLoops = 50;
+
+    private static final String kDumpDirectory = "/home/lvuser/loopstats";
+
+    private static final HashMap<String, Integer> sectionIds = new HashMap<>();
+    private static final String[] names = new String[kMaxSections];
+    private static final int[][][] histograms = new int[Mode.values().length][kMaxSections][kBuckets];
+    private static final long[][] counts = new long[Mode.values().length][kMaxSections];
+    private static final long[][] maxNs = new long[Mode.values().length][kMaxSections];
+
+    private static final int[] p50Handles = new int[kMaxSections];
+    private static final int[] p99Handles = new int[kMaxSections];
+    private static final int[] maxHandles = new int[kMaxSections];
+
+    private static int sectionCount = 0;
+    private static int publishCounter = 0;
+    private static Mode mode = Mode.DISABLED;
+
+    /**
+     * Registers a named section, registering the same name again returns the same id
+     *
+     * Runs from command constructors, so running out of sections doesn't throw: everything past
+     * kOverflowSection is recorded together as "Other sections" and a warning is printed once.
+     */
+    public static synchronized int register(String name) {
+        Integer existing = sectionIds.get(name);
+        if (existing != null) {
+            return existing;
+        }
+
+        int id;
+        if (sectionCount < kOverflowSection) {
+            id = sectionCount++;
+            addSection(id, name);
+        } else {
+            id = kOverflowSection;
+            if (sectionCount == kOverflowSection) {
+                System.out.println("LoopProfiler: out of sections at " + name
+                        + ", it and any later ones are recorded as Other sections; raise kMaxSections");
+                sectionCount++;
+                addSection(id, "Other sections");
+            }
+        }
+        sectionIds.put(name, id);
+        return id;
+    }
+
+    private static void addSection(int id, String name) {
+        names[id] = name;
+        p50Handles[id] = Telemetry.register("Loop/" + name + " p50", 1.0, 0);
+        p99Handles[id] = Telemetry.register("Loop/" + name + " p99", 1.0, 0);
+        maxHandles[id] = Telemetry.register("Loop/" + name + " max", 1.0, 0);
+    }
+
+    public static void setMode(Mode newMode) {
+        mode = newMode;
+    }
+
+    public static Mode getMode() {
+        return mode;
+    }
+
+    static String getName(int id) {
+        return names[id];
+    }
+
+    static int getSectionCount() {
+        return sectionCount;
+    }
+
+    public static long start() {
+        return System.nanoTime();
+    }
+
+    // Records the time since start (from start()) against a section
+    public static void stop(int id, long start) {
+        record(id, System.nanoTime() - start);
+    }
+
+    public static void record(int id, long elapsedNs) {
+        int m = mode.ordinal();
+        int bucket = (int) Math.min(elapsedNs / kBucketWidthNs, kBuckets - 1);
+
+        histograms[m][id][bucket]++;
+        counts[m][id]++;
+        if (elapsedNs > maxNs[m][id]) {
+            maxNs[m][id] = elapsedNs;
+        }
+    }
+
+    /**
+     * Call once per loop; every kPublishLoops loops this pushes p50/p99/max for the current mode to Telemetry
+     */
+    public static void publish() {
+        if (++publishCounter < kPublishLoops) {
+            return;
+        }
+        publishCounter = 0;
+
+        int m = mode.ordinal();
+        for (int id = 0; id < sectionCount; id++) {
+            if (counts[m][id] == 0) {
+                continue;
+            }
+            Telemetry.put(p50Handles[id], percentileMs(m, id, 0.50));
+            Telemetry.put(p99Handles[id], percentileMs(m, id, 0.99));
+            Telemetry.put(maxHandles[id], maxNs[m][id] / 1e6);
+        }
+    }
+
+    // Upper edge of the bucket holding the given percentile, in ms
+    private static double percentileMs(int m, int id, double percentile) {
+        long target = (long) Math.ceil(counts[m][id] * percentile);
+        long seen = 0;
+        int[] histogram = histograms[m][id];
+
+        for (int bucket = 0; bucket < kBuckets - 1; bucket++) {
+            seen += histogram[bucket];
+            if (seen >= target) {
+                return (bucket + 1) * kBucketWidthNs / 1e6;
+            }
+        }
+        return maxNs[m][id] / 1e6;
+    }
+
+    /**
+     * Writes a summary of every mode and section to a file and clears the histograms;
+     * meant to be called from disabledInit
+     */
+    public static void dump() {
+        if (!hasSamples()) {
+            return;
+        }
+
+        File directory = new File(kDumpDirectory);
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            System.out.println("Could not create " + kDumpDirectory + ", loop stats not saved");
+            return;
+        }
+
+        File file = new File(directory, "loopstats-" + System.currentTimeMillis() + ".txt");
+        try (PrintWriter writer = new PrintWriter(file)) {
+            writer.println("mode,section,count,p50_ms,p99_ms,max_ms");
+            for (Mode m : Mode.values()) {
+                for (int id = 0; id < sectionCount; id++) {
+                    long count = counts[m.ordinal()][id];
+                    if (count == 0) {
+                        continue;
+                    }
+                    writer.println(m + "," + names[id] + "," + count + "," + percentileMs(m.ordinal(), id, 0.50) + ","
+                            + percentileMs(m.ordinal(), id, 0.99) + "," + maxNs[m.ordinal()][id] / 1e6);
+                }
+            }
+        } catch (FileNotFoundException e) {
+            System.out.println("Could not write loop stats: " + e.getMessage());
+            return;
+        }
+
+        reset();
+    }
+
+    private static boolean hasSamples() {
+        for (long[] modeCounts : counts) {
+            for (int id = 0; id < sectionCount; id++) {
+                if (modeCounts[id] > 0) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    public static void reset() {
+        for (int m = 0; m < histograms.length; m++) {
+            for (int id = 0; id < sectionCount; id++) {
+                Arrays.fill(histograms[m][id], 0);
+                counts[m][id] = 0;
+                maxNs[m][id] = 0;
+            }
+        }
+    }
+
+}
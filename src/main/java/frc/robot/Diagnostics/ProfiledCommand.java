@@ -0,0 +1,59 @@
+package frc.robot.Diagnostics;
+
+import edu.wpi.first.wpilibj.command.Command;
+
+/**
+ * Command that times its own initialize, execute and end into LoopProfiler
+ *
+ * Subclasses put their logic in onInitialize(), onExecute() and onEnd() instead of overriding
+ * the Command methods directly; sections are named after the class, e.g. "Drive.execute".
+ * In AllocationMonitor's audit mode the same sections also record allocated bytes.
+ */
+public abstract class ProfiledCommand extends Command {
+
+    private final int initializeId, executeId, endId;
+
+    public ProfiledCommand() {
+        String name = getClass().getSimpleName();
+        initializeId = LoopProfiler.register(name + ".initialize");
+        executeId = LoopProfiler.register(name + ".execute");
+        endId = LoopProfiler.register(name + ".end");
+    }
+
+    @Override
+    protected final void initialize() {
+        long start = LoopProfiler.start();
+        long bytes = AllocationMonitor.startAudit();
+        onInitialize();
+        AllocationMonitor.stopAudit(initializeId, bytes);
+        LoopProfiler.stop(initializeId, start);
+    }
+
+    @Override
+    protected final void execute() {
+        long start = LoopProfiler.start();
+        long bytes = AllocationMonitor.startAudit();
+        onExecute();
+        AllocationMonitor.stopAudit(executeId, bytes);
+        LoopProfiler.stop(executeId, start);
+    }
+
+    @Override
+    protected final void end() {
+        long start = LoopProfiler.start();
+        long bytes = AllocationMonitor.startAudit();
+        onEnd();
+        AllocationMonitor.stopAudit(endId, bytes);
+        LoopProfiler.stop(endId, start);
+    }
+
+    protected void onInitialize() {
+    }
+
+    protected void onExecute() {
+    }
+
+    protected void onEnd() {
+    }
+
+}
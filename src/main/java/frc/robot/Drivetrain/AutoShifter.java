@@ -0,0 +1,296 @@
+package frc.robot.Drivetrain;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintWriter;
+
+import frc.robot.Control.GainsFile;
+import frc.robot.Drivetrain.DrivetrainSubsystem.Gear;
+import frc.robot.Telemetry.Telemetry;
+
+/**
+ * Picks the gear during teleop from wheel speed, throttle demand and current draw
+ *
+ *  - upshifts when the robot is driving straight faster than upshiftSpeed with the stick past
+ *    upshiftDemand
+ *  - downshifts when it slows below downshiftSpeed (the gap between the two is the hysteresis),
+ *    or when it is pushing: leader current over pushCurrent while barely accelerating, for pushTime
+ *  - never shifts again within minDwell of the last shift
+ *
+ * The drive commands call update() once per loop with the stick demand. Speed thresholds default
+ * to fractions of the low gear top speed and can be overridden in shifter.properties.
+ *
+ * Every shift is logged with its reason, the speed and demand at the time, and the acceleration
+ * over kAccelWindow before and after it, so the upshift speed can be tuned for the fastest
+ * acceleration: an upshift is early if the robot accelerates slower after it than before.
+ * dump() writes the shifts and the time spent in each gear.
+ */
+public class AutoShifter {
+
+    private enum Reason {
+        SPEED, SLOWING, PUSHING, MANUAL
+    }
+
+    private static final int kMaxEvents = 256;
+    private static final int kSpeedSamples = 16;
+    private static final double kAccelWindow = 0.3;
+    // Longer gaps between update() calls (another command had the drivetrain) aren't counted as time in gear
+    private static final double kMaxLoopGap = 0.1;
+
+    private static final String kDumpDirectory = "/home/lvuser/loopstats";
+
+    private static boolean enabled = true;
+
+    private static double upshiftSpeed, downshiftSpeed, upshiftDemand;
+    private static double pushCurrent, pushAcceleration, pushTime;
+    private static double minDwell;
+
+    private static double lastShiftTime = Double.NEGATIVE_INFINITY;
+    private static double pushStart = Double.NaN;
+    private static double lastUpdate = Double.NaN;
+
+    // Recent signed centre speeds for the acceleration estimate, as a ring buffer
+    private static final double[] speeds = new double[kSpeedSamples];
+    private static final double[] times = new double[kSpeedSamples];
+    private static int speedCount = 0;
+
+    private static final double[] gearTime = new double[Gear.values().length];
+
+    // Shift events, as a ring buffer
+    private static final double[] eventTime = new double[kMaxEvents];
+    private static final Gear[] eventGear = new Gear[kMaxEvents];
+    private static final Reason[] eventReason = new Reason[kMaxEvents];
+    private static final double[] eventSpeed = new double[kMaxEvents];
+    private static final double[] eventDemand = new double[kMaxEvents];
+    private static final double[] eventCurrent = new double[kMaxEvents];
+    private static final double[] eventAccelBefore = new double[kMaxEvents];
+    private static final double[] eventAccelAfter = new double[kMaxEvents];
+    private static int events = 0;
+    // Last event still waiting for its acceleration after the shift, -1 if none
+    private static int pendingEvent = -1;
+
+    private static final int kGear = Telemetry.register("Shifter gear", 0.1, 0);
+    private static final int kShifts = Telemetry.register("Shifter shifts", 0.5, 0);
+    private static final int kLowTime = Telemetry.register("Shifter low gear s", 1.0, 0);
+    private static final int kHighTime = Telemetry.register("Shifter high gear s", 1.0, 0);
+
+    static {
+        loadGains();
+    }
+
+    /**
+     * Loads the thresholds from /home/lvuser/gains/shifter.properties; speeds in m/s, current in amps
+     */
+    public static void loadGains() {
+        double lowTopSpeed = DrivetrainSubsystem.getMaxSpeed(Gear.LOW);
+        GainsFile gains = new GainsFile("shifter");
+        upshiftSpeed = gains.get("upshiftSpeed", 0.8 * lowTopSpeed);
+        downshiftSpeed = gains.get("downshiftSpeed", 0.5 * lowTopSpeed);
+        upshiftDemand = gains.get("upshiftDemand", 0.8);
+        pushCurrent = gains.get("pushCurrent", 40);
+        pushAcceleration = gains.get("pushAcceleration", 0.5);
+        pushTime = gains.get("pushTime", 0.25);
+        minDwell = gains.get("minDwell", 0.5);
+    }
+
+    public static void setEnabled(boolean enable) {
+        enabled = enable;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Starts teleop in low gear with a clean acceleration history; call from teleopInit
+     */
+    public static void reset() {
+        DrivetrainSubsystem.setGear(Gear.LOW);
+        lastShiftTime = Double.NEGATIVE_INFINITY;
+        pushStart = Double.NaN;
+        lastUpdate = Double.NaN;
+        speedCount = 0;
+        pendingEvent = -1;
+    }
+
+    /**
+     * Driver override: shifts once and turns automatic shifting off until setEnabled(true)
+     */
+    public static void manualShift() {
+        enabled = false;
+        shift(DrivetrainSubsystem.getGear() == Gear.LOW ? Gear.HIGH : Gear.LOW, Reason.MANUAL, 0);
+    }
+
+    /**
+     * Call once per loop from the teleop drive command
+     *
+     * @param demand   largest side output the driver asked for, -1 to 1
+     */
+    public static void update(double demand) {
+        double time = DrivetrainSubsystem.getTimestamp();
+        double speed = (DrivetrainSubsystem.toMetersPerSecond(DrivetrainSubsystem.getLeftVelocity())
+                + DrivetrainSubsystem.toMetersPerSecond(DrivetrainSubsystem.getRightVelocity())) / 2;
+        double current = Math.max(Math.abs(DrivetrainSubsystem.getLeftCurrent()), Math.abs(DrivetrainSubsystem.getRightCurrent()));
+        Gear gear = DrivetrainSubsystem.getGear();
+
+        if (!Double.isNaN(lastUpdate) && time - lastUpdate < kMaxLoopGap) {
+            gearTime[gear.ordinal()] += time - lastUpdate;
+        }
+        lastUpdate = time;
+
+        double acceleration = recordSpeed(time, speed);
+        finishPendingEvent(time, speed);
+
+        if (!enabled || time - lastShiftTime < minDwell) {
+            pushStart = Double.NaN;
+            publish(gear);
+            return;
+        }
+
+        double absoluteSpeed = Math.abs(speed);
+        double absoluteDemand = Math.abs(demand);
+
+        if (gear == Gear.LOW) {
+            // Demand in the direction of travel, so reversing the stick at speed doesn't upshift
+            if (absoluteSpeed > upshiftSpeed && absoluteDemand > upshiftDemand && Math.signum(demand) == Math.signum(speed)) {
+                shift(Gear.HIGH, Reason.SPEED, demand);
+            }
+        } else {
+            boolean pushing = current > pushCurrent && Math.abs(acceleration) < pushAcceleration;
+            if (!pushing) {
+                pushStart = Double.NaN;
+            } else if (Double.isNaN(pushStart)) {
+                pushStart = time;
+            }
+
+            if (absoluteSpeed < downshiftSpeed) {
+                shift(Gear.LOW, Reason.SLOWING, demand);
+            } else if (pushing && time - pushStart >= pushTime) {
+                shift(Gear.LOW, Reason.PUSHING, demand);
+            }
+        }
+
+        publish(DrivetrainSubsystem.getGear());
+    }
+
+    // Adds a speed sample and returns the acceleration in m/s^2 over the samples kept
+    private static double recordSpeed(double time, double speed) {
+        int slot = speedCount % kSpeedSamples;
+        speeds[slot] = speed;
+        times[slot] = time;
+        speedCount++;
+
+        if (speedCount < 2) {
+            return 0;
+        }
+        int oldest = speedCount > kSpeedSamples ? speedCount % kSpeedSamples : 0;
+        double dt = time - times[oldest];
+        return dt > 0 ? (speed - speeds[oldest]) / dt : 0;
+    }
+
+    // Acceleration over the window before now, or 0 without enough history
+    private static double accelerationBefore(double time, double speed) {
+        for (int back = Math.min(speedCount, kSpeedSamples) - 1; back > 0; back--) {
+            int slot = (speedCount - 1 - back) % kSpeedSamples;
+            double dt = time - times[slot];
+            if (dt <= kAccelWindow + 1e-6) {
+                return dt > 0 ? (speed - speeds[slot]) / dt : 0;
+            }
+        }
+        return 0;
+    }
+
+    private static void finishPendingEvent(double time, double speed) {
+        if (pendingEvent < 0) {
+            return;
+        }
+        double elapsed = time - eventTime[pendingEvent];
+        if (elapsed >= kAccelWindow) {
+            eventAccelAfter[pendingEvent] = (speed - eventSpeed[pendingEvent]) / elapsed;
+            pendingEvent = -1;
+        }
+    }
+
+    private static void shift(Gear to, Reason reason, double demand) {
+        double time = DrivetrainSubsystem.getTimestamp();
+        double speed = (DrivetrainSubsystem.toMetersPerSecond(DrivetrainSubsystem.getLeftVelocity())
+                + DrivetrainSubsystem.toMetersPerSecond(DrivetrainSubsystem.getRightVelocity())) / 2;
+
+        // A shift before the last one's window closed leaves its acceleration unknown
+        if (pendingEvent >= 0) {
+            eventAccelAfter[pendingEvent] = Double.NaN;
+        }
+
+        int slot = events % kMaxEvents;
+        eventTime[slot] = time;
+        eventGear[slot] = to;
+        eventReason[slot] = reason;
+        eventSpeed[slot] = speed;
+        eventDemand[slot] = demand;
+        eventCurrent[slot] = Math.max(Math.abs(DrivetrainSubsystem.getLeftCurrent()), Math.abs(DrivetrainSubsystem.getRightCurrent()));
+        eventAccelBefore[slot] = accelerationBefore(time, speed);
+        eventAccelAfter[slot] = Double.NaN;
+        pendingEvent = slot;
+        events++;
+
+        DrivetrainSubsystem.setGear(to);
+        lastShiftTime = time;
+        pushStart = Double.NaN;
+
+        System.out.println(String.format("Shift to %s (%s) at %.2f m/s, demand %.2f", to, reason, speed, demand));
+    }
+
+    private static void publish(Gear gear) {
+        Telemetry.put(kGear, gear.ordinal());
+        Telemetry.put(kShifts, events);
+        Telemetry.put(kLowTime, gearTime[Gear.LOW.ordinal()]);
+        Telemetry.put(kHighTime, gearTime[Gear.HIGH.ordinal()]);
+    }
+
+    /**
+     * Writes every logged shift and the time in each gear to a file, prints a summary and clears
+     * the log; meant to be called from disabledInit
+     */
+    public static void dump() {
+        if (events == 0 && gearTime[Gear.LOW.ordinal()] == 0 && gearTime[Gear.HIGH.ordinal()] == 0) {
+            return;
+        }
+
+        System.out.println(String.format("Shifter: %d shifts, %.1f s low gear, %.1f s high gear", events,
+                gearTime[Gear.LOW.ordinal()], gearTime[Gear.HIGH.ordinal()]));
+
+        File directory = new File(kDumpDirectory);
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            System.out.println("Could not create " + kDumpDirectory + ", shift log not saved");
+            return;
+        }
+
+        File file = new File(directory, "shifts-" + System.currentTimeMillis() + ".txt");
+        try (PrintWriter writer = new PrintWriter(file)) {
+            writer.println("gear,seconds");
+            for (Gear gear : Gear.values()) {
+                writer.println(gear + "," + gearTime[gear.ordinal()]);
+            }
+
+            writer.println();
+            writer.println("time,to,reason,speed,demand,current,accel_before,accel_after");
+            int first = Math.max(0, events - kMaxEvents);
+            for (int event = first; event < events; event++) {
+                int slot = event % kMaxEvents;
+                writer.println(eventTime[slot] + "," + eventGear[slot] + "," + eventReason[slot] + "," + eventSpeed[slot]
+                        + "," + eventDemand[slot] + "," + eventCurrent[slot] + "," + eventAccelBefore[slot] + ","
+                        + eventAccelAfter[slot]);
+            }
+        } catch (FileNotFoundException e) {
+            System.out.println("Could not write shift log: " + e.getMessage());
+            return;
+        }
+
+        events = 0;
+        pendingEvent = -1;
+        for (int i = 0; i < gearTime.length; i++) {
+            gearTime[i] = 0;
+        }
+    }
+
+}
@@ -1,18 +1,29 @@
 package frc.robot.Drivetrain;
 
 import edu.wpi.first.wpilibj.DoubleSolenoid.Value;
-import edu.wpi.first.wpilibj.command.Command;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import frc.robot.Robot;
+import frc.robot.Control.InputShaper;
+import frc.robot.Diagnostics.ProfiledCommand;
+import frc.robot.Telemetry.Telemetry;
 
 //import static frc.robot.Drivetrain.DrivetrainSubsystem.motors;
 
-public class CurvatureDrive extends Command {
+public class CurvatureDrive extends ProfiledCommand {
     private static double right, left;
     private double driveRamp = 0, quickturnRamp = 0;
 
     private static final double kJoystickDeadband = 0.05;
 
+    //Deadbanding the joystick values to avoid movement due to controller drift
+    private final InputShaper throttleShaper = new InputShaper().deadband(kJoystickDeadband);
+    private final InputShaper turnShaper = new InputShaper().deadband(kJoystickDeadband);
+
+    //Squares the mixed outputs to add a sensitivity curve
+    private final InputShaper leftShaper = new InputShaper().expo(2);
+    private final InputShaper rightShaper = new InputShaper().expo(2);
+
+    private static final int kPhotoelectric = Telemetry.registerBoolean("Photoelectric");
+
     /**
      * Left: 21.51 ft/s, 6.559 m/s, equation: 582x-796, intercept at 1.3677v
      * Right 20.51 ft/s, 6.253 m/s, equation: 553x-736, intercept at 1.3309v
@@ -38,17 +49,16 @@ public class CurvatureDrive extends Command {
         return true;
     }
     
-    protected void execute(){
+    protected void onExecute(){
 
-        SmartDashboard.putBoolean("Photoelectric", Robot.oi.getPhotoelectricA());
+        Telemetry.put(kPhotoelectric, Robot.oi.getPhotoelectricA());
         
         //Getting the raw joystick values from OI
         double throttle = Robot.oi.throttleValue();
         double turn = Robot.oi.turnValue();
         
-        //Deadbanding the joystick values to avoid movement due to controller drift
-        throttle = deadbandX(throttle , kJoystickDeadband);
-        turn = deadbandX(turn, kJoystickDeadband);
+        throttle = throttleShaper.calculate(throttle);
+        turn = turnShaper.calculate(turn);
         
         //Handles quickturning
         boolean quickturn = Robot.oi.isQuickturn();
@@ -58,11 +68,11 @@ public class CurvatureDrive extends Command {
         if(!quickturn){
             DrivetrainSubsystem.setOpenLoopRamp(driveRamp);
 
-            left = throttle+throttle*turn + 0.5*(-qLeft+qRight);
-            right = throttle-throttle*turn + 0.5*(-qRight+qLeft);
+            left = mixLeft(throttle, turn, qLeft, qRight);
+            right = mixRight(throttle, turn, qLeft, qRight);
 
-            left = exponentiate(left, 2);
-            right = exponentiate(right, 2);
+            left = leftShaper.calculate(left);
+            right = rightShaper.calculate(right);
 
         } else {
             DrivetrainSubsystem.setOpenLoopRamp(quickturnRamp);
@@ -77,52 +87,21 @@ public class CurvatureDrive extends Command {
 
 
     /**
-     * Essentially an implementation of the slope formula, m = (y1-y2)/(x1-x2) = (1 - 0)/(1 - deadband)
-     * Uses this slope and multiplies it by the input to deadband a controller from deadband to 1
-     * 
-     * @param input      an input value to test for deadband
-     * @param deadband   deadband value to check the input against
-     * @return           returns a double rescaled to fit a deadband
+     * Curvature style mixing: turn scales with throttle, and the triggers add a quickturn on top
+     *
+     * @param throttle   deadbanded throttle
+     * @param turn       deadbanded turn
+     * @param qLeft      left trigger
+     * @param qRight     right trigger
+     * @return           left side output before exponentiation
      */
-    public static double deadbandX(double input, double deadband){
-        if(Math.abs(input) <= deadband){
-            return 0;
-        } else if(Math.abs(input)==1) {
-            return input;
-        } else {
-            return (1/(1-deadband)*(input+Math.signum(-input)*deadband));
-        }
+    public static double mixLeft(double throttle, double turn, double qLeft, double qRight){
+        return throttle+throttle*turn + 0.5*(-qLeft+qRight);
     }
 
-    /**
-     * Used to achieve a higher degree of sensitivity when driving
-     * Smaller inputs are smaller, larger inputs are larger, without exceeding maximum
-     * 
-     * @param input   number to put to a power
-     * @param power   number to exponentiate input by (not necessarily an integer)
-     * @return        returns a double, squared, with the same sign as input
-     *     
-     */
-    public static double exponentiate(double input, double power){
-        return Math.copySign(Math.pow(input, power),input);
-    }
-
-    /**
-     * Essentially deadbandX but in the y direction
-     * m = (y1-y2)/(x1-x2) = (1-deadband)(1-0)
-     * 
-     * @param input      input value to test for deadband 
-     * @param deadband   determines values where method returns 0
-     * @return           returns a double rescaled according to deadband
-     */
-    public static double deadbandY(double input, double deadband){
-        if(Math.abs(input) == 0.0){
-            return 0;
-        } else if(Math.abs(input) == 1){
-            return input;
-        } else {
-            return input*(1.0-deadband)+Math.signum(input)*deadband;
-        }
+    // Right side counterpart of mixLeft()
+    public static double mixRight(double throttle, double turn, double qLeft, double qRight){
+        return throttle-throttle*turn + 0.5*(-qRight+qLeft);
     }
 
 }
\ No newline at end of file
@@ -3,19 +3,36 @@ package frc.robot.Drivetrain;
 import com.ctre.phoenix.motorcontrol.can.TalonSRX;
 
 import edu.wpi.first.wpilibj.DoubleSolenoid.Value;
-import edu.wpi.first.wpilibj.command.Command;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import frc.robot.Robot;
+import frc.robot.Control.InputShaper;
+import frc.robot.Diagnostics.ProfiledCommand;
+import frc.robot.Telemetry.Telemetry;
 
 //import static frc.robot.Drivetrain.DrivetrainSubsystem.motors;
 
-public class Drive extends Command {
+public class Drive extends ProfiledCommand {
     private static double right, left;
     boolean autoEnabled = false;
 
     private static final double kJoystickDeadband = 0.03;
     private static final double minVoltMove = 0.8/12.0;
 
+    //Deadbanding the joystick values to avoid moving when there is no input
+    private final InputShaper throttleShaper = new InputShaper().deadband(kJoystickDeadband);
+    private final InputShaper turnShaper = new InputShaper().deadband(kJoystickDeadband);
+
+    //Lifts any output over the voltage needed to get the robot moving
+    private final InputShaper leftShaper = new InputShaper().minimum(minVoltMove);
+    private final InputShaper rightShaper = new InputShaper().minimum(minVoltMove);
+
+    private static final int kRightVoltage = Telemetry.register("stick");
+    private static final int kLeftVoltage = Telemetry.register("lstick");
+    private static final int kRightCurrent = Telemetry.register("RACurr");
+    private static final int kLeftCurrent = Telemetry.register("LACurr");
+
+    //Open loop speed tracking, treating full stick as VelocityDrive's top speed
+    static final SpeedErrorStats openLoopError = new SpeedErrorStats("Open loop");
+
     public Drive(){
         requires(DrivetrainSubsystem.getInstance());
     }
@@ -25,7 +42,11 @@ public class Drive extends Command {
         return false;
     }
 
-    protected void execute(){
+    protected void onInitialize(){
+        openLoopError.restart();
+    }
+
+    protected void onExecute(){
         
         //Getting the raw joystick values from OI
         double throttle = Robot.oi.throttleValue();
@@ -33,81 +54,47 @@ public class Drive extends Command {
 
         double quickturnRamp = 0.0;
         
-        //Deadbanding the joystick values to avoid moving when there is no input
-        throttle = deadbandX(throttle, kJoystickDeadband);
-        turn = deadbandX(turn, kJoystickDeadband);
-        SmartDashboard.putNumber("stick", DrivetrainSubsystem.rightMotorA.getMotorOutputVoltage());
-        SmartDashboard.putNumber("lstick", DrivetrainSubsystem.leftMotorA.getMotorOutputVoltage());
+        throttle = throttleShaper.calculate(throttle);
+        turn = turnShaper.calculate(turn);
+        Telemetry.put(kRightVoltage, DrivetrainSubsystem.getRightVoltage());
+        Telemetry.put(kLeftVoltage, DrivetrainSubsystem.getLeftVoltage());
 
-        boolean quickturn = throttle == 0;
-        
-        if(quickturn){ //Quickturning when no input from throttle stick
-            left = 0.5*turn;
-            right = -0.5*turn;
-        } else { //Binary curvature drive when throttle stick has input, squares outputs to add sensitivity curve
-            left = throttle+throttle*turn*0.85;
-            right = throttle-throttle*turn*0.85;
-
-            //left = exponentiate(left, 2);
-            //right = exponentiate(right, 2);
-        }
+        left = mixLeft(throttle, turn);
+        right = mixRight(throttle, turn);
 
-        SmartDashboard.putNumber("RACurr", DrivetrainSubsystem.rightMotorA.getOutputCurrent());
-        SmartDashboard.putNumber("LACurr", DrivetrainSubsystem.leftMotorA.getOutputCurrent());
+        Telemetry.put(kRightCurrent, DrivetrainSubsystem.getRightCurrent());
+        Telemetry.put(kLeftCurrent, DrivetrainSubsystem.getLeftCurrent());
 
-        left = deadbandY(left, minVoltMove);
-        right = deadbandY(right, minVoltMove);
+        double maxSpeed = DrivetrainSubsystem.getMaxSpeed();
+        openLoopError.record(left * maxSpeed, right * maxSpeed);
+        AutoShifter.update(Math.abs(left) > Math.abs(right) ? left : right);
+
+        left = leftShaper.calculate(left);
+        right = rightShaper.calculate(right);
 
         DrivetrainSubsystem.drive(left, right);
     }
 
     /**
-     * Essentially an implementation of the slope formula, m = (y1-y2)/(x1-x2) = (1 - 0)/(1 - deadband)
-     * Uses this slope and multiplies it by the input to deadband a controller from deadband to 1
-     * 
-     * @param input      an input value to test for deadband
-     * @param deadband   deadband value to check the input against
-     * @return           returns a double rescaled to fit a deadband
+     * Quickturns when there is no throttle, otherwise binary curvature drive
+     *
+     * @param throttle   deadbanded throttle
+     * @param turn       deadbanded turn
+     * @return           left side output, -1 to 1
      */
-    public static double deadbandX(double input, double deadband){
-        if(Math.abs(input) <= deadband){
-            return 0;
-        } else if(Math.abs(input)==1) {
-            return input;
-        } else {
-            return (1/(1-deadband)*(input+Math.signum(-input)*deadband));
+    static double mixLeft(double throttle, double turn){
+        if(throttle == 0){
+            return 0.5*turn;
         }
+        return throttle+throttle*turn*0.85;
     }
 
-    /**
-     * Used to achieve a higher degree of sensitivity when driving
-     * Smaller inputs are smaller, larger inputs are larger, without exceeding maximum
-     * 
-     * @param input   number to put to a power
-     * @param power   number to exponentiate input by (not necessarily an integer)
-     * @return        returns a double, squared, with the same sign as input
-     *     
-     */
-    public static double exponentiate(double input, double power){
-        return Math.copySign(Math.pow(input, power),input);
-    }
-
-    /**
-     * Essentially deadbandX but in the y direction
-     * m = (y1-y2)/(x1-x2) = (1-deadband)(1-0)
-     * 
-     * @param input      input value to test for deadband 
-     * @param deadband   determines values where method returns 0
-     * @return           returns a double rescaled according to deadband
-     */
-    public static double deadbandY(double input, double deadband){
-        if(Math.abs(input) == 0.0){
-            return 0;
-        } else if(Math.abs(input) == 1){
-            return input;
-        } else {
-            return input*(1.0-deadband)+Math.signum(input)*deadband;
+    // Right side counterpart of mixLeft()
+    static double mixRight(double throttle, double turn){
+        if(throttle == 0){
+            return -0.5*turn;
         }
+        return throttle-throttle*turn*0.85;
     }
 
 }
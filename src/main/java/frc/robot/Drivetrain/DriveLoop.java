@@ -0,0 +1,169 @@
+package frc.robot.Drivetrain;
+
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.RobotController;
+import frc.robot.Telemetry.Telemetry;
+
+/**
+ * Optional fast control loop for the drivetrain, driven by a Notifier instead of the 20 ms
+ * TimedRobot loop
+ *
+ * While it runs, this thread owns the drivetrain outputs and the sensor snapshot:
+ *  - DrivetrainSubsystem.drive() calls from commands only publish a setpoint through a
+ *    single-writer seqlock, and each iteration applies the latest one
+ *  - a command can install a Controller (PathFollower does) that is stepped every iteration and
+ *    drives the motors directly, so path tracking runs at the loop rate
+ */
+public class DriveLoop {
+
+    /**
+     * Code stepped once per iteration on the loop thread, after the snapshot has been sampled
+     */
+    public interface Controller {
+        void update();
+    }
+
+    private static Notifier notifier;
+    private static volatile boolean running = false;
+    private static volatile Thread loopThread;
+    private static volatile Controller controller;
+    private static double period;
+
+    // Seqlock for the setpoint handoff; odd while the writer is mid-update
+    private static volatile long sequence = 0;
+    private static volatile double leftSetpoint = 0, rightSetpoint = 0;
+
+    // Jitter statistics, only touched by the loop thread
+    private static long lastStartMicros = 0;
+    private static long iterations = 0, overruns = 0;
+    private static double jitterSum = 0, jitterSquaredSum = 0, maxJitter = 0;
+    private static int publishCounter = 0;
+
+    private static final int kMeanJitter = Telemetry.register("DriveLoop mean jitter ms", 0.5, 0);
+    private static final int kRmsJitter = Telemetry.register("DriveLoop rms jitter ms", 0.5, 0);
+    private static final int kMaxJitter = Telemetry.register("DriveLoop max jitter ms", 0.5, 0);
+    private static final int kOverruns = Telemetry.register("DriveLoop overruns", 0.5, 0);
+
+    /**
+     * Starts the loop
+     *
+     * @param loopPeriod   seconds between iterations, 0.005 or 0.01 are sensible
+     */
+    public static synchronized void start(double loopPeriod) {
+        if (running) {
+            return;
+        }
+        period = loopPeriod;
+        lastStartMicros = 0;
+
+        notifier = new Notifier(DriveLoop::iterate);
+        running = true;
+        notifier.startPeriodic(period);
+    }
+
+    public static synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        notifier.stop();
+        notifier.close();
+        notifier = null;
+        loopThread = null;
+        controller = null;
+        // A restarted loop mustn't pick up the setpoint from before
+        setSetpoint(0, 0);
+    }
+
+    public static boolean isRunning() {
+        return running;
+    }
+
+    public static boolean isLoopThread() {
+        return Thread.currentThread() == loopThread;
+    }
+
+    public static void setController(Controller newController) {
+        controller = newController;
+    }
+
+    /**
+     * Removes a controller, but only if it is still the installed one, and zeroes the setpoint so
+     * the loop doesn't go back to driving whatever was published before the controller took over;
+     * call from the main robot thread, like setSetpoint()
+     */
+    public static void clearController(Controller oldController) {
+        if (controller == oldController && oldController != null) {
+            controller = null;
+            setSetpoint(0, 0);
+        }
+    }
+
+    /**
+     * Publishes a new open loop setpoint; must only be called from one thread (the main robot thread)
+     */
+    public static void setSetpoint(double left, double right) {
+        sequence++;
+        leftSetpoint = left;
+        rightSetpoint = right;
+        sequence++;
+    }
+
+    private static void iterate() {
+        long startMicros = RobotController.getFPGATime();
+        loopThread = Thread.currentThread();
+
+        DrivetrainSubsystem.sample();
+
+        Controller active = controller;
+        if (active != null) {
+            active.update();
+        } else {
+            double left, right;
+            long before, after;
+            do {
+                before = sequence;
+                left = leftSetpoint;
+                right = rightSetpoint;
+                after = sequence;
+            } while ((before & 1) != 0 || before != after);
+
+            DrivetrainSubsystem.drive(left, right);
+        }
+
+        recordJitter(startMicros);
+    }
+
+    private static void recordJitter(long startMicros) {
+        if (lastStartMicros != 0) {
+            double actual = (startMicros - lastStartMicros) / 1e6;
+            double jitter = Math.abs(actual - period);
+
+            iterations++;
+            jitterSum += jitter;
+            jitterSquaredSum += jitter * jitter;
+            maxJitter = Math.max(maxJitter, jitter);
+            if (actual > 1.5 * period) {
+                overruns++;
+            }
+
+            if (++publishCounter * period >= 0.5) {
+                publishCounter = 0;
+                Telemetry.put(kMeanJitter, jitterSum / iterations * 1e3);
+                Telemetry.put(kRmsJitter, Math.sqrt(jitterSquaredSum / iterations) * 1e3);
+                Telemetry.put(kMaxJitter, maxJitter * 1e3);
+                Telemetry.put(kOverruns, overruns);
+            }
+        }
+        lastStartMicros = startMicros;
+    }
+
+    public static void resetStatistics() {
+        iterations = 0;
+        overruns = 0;
+        jitterSum = 0;
+        jitterSquaredSum = 0;
+        maxJitter = 0;
+    }
+
+}
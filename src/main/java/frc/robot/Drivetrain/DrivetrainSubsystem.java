@@ -1,20 +1,27 @@
 package frc.robot.Drivetrain;
 
 import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.DoubleSupplier;
 
 import com.ctre.phoenix.motorcontrol.ControlMode;
 import com.ctre.phoenix.motorcontrol.FeedbackDevice;
 import com.ctre.phoenix.motorcontrol.NeutralMode;
 import com.ctre.phoenix.motorcontrol.StatusFrameEnhanced;
-import com.ctre.phoenix.motorcontrol.can.TalonSRX;
 import com.kauailabs.navx.frc.AHRS;
 
 import edu.wpi.first.wpilibj.Compressor;
 import edu.wpi.first.wpilibj.DoubleSolenoid;
 import edu.wpi.first.wpilibj.SPI;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.command.Subsystem;
 
 import edu.wpi.first.networktables.NetworkTableInstance;
+import frc.robot.Control.GainsFile;
+import frc.robot.Hardware.DriveGyro;
+import frc.robot.Hardware.DriveMotor;
+import frc.robot.Hardware.ShadowTalonSRX;
+import frc.robot.Hardware.TalonDriveMotor;
 
 public class DrivetrainSubsystem extends Subsystem {
 
@@ -28,31 +35,117 @@ public class DrivetrainSubsystem extends Subsystem {
 
     private static final int kTimeout = 10;
     private static final int kPIDIndex = 0;
+    private static final int kMotionMagicSlot = 0;
+    private static final double kNominalVoltage = 12;
     private static final int kCruiseVelo = 500;
     private static final int kAccel = 1000;
 
+    // 4517 encoder ticks per revolution of a 6 in. wheel
+    public static final double kTicksPerMeter = 4517 / (0.1524 * Math.PI);
+
+    // Shifter positions; the feedforward, velocity slot and top speed all follow the current gear
+    public enum Gear {
+        LOW("", 2), HIGH("high.", 3);
+
+        // Low gear keeps the gains file keys CharacterizeDrive has always saved
+        private final String prefix;
+        // Talon slot with this gear's velocity gains, 0 is Motion Magic and 1 the motion profile
+        private final int velocitySlot;
+
+        Gear(String prefix, int velocitySlot) {
+            this.prefix = prefix;
+            this.velocitySlot = velocitySlot;
+        }
+
+        // Gains file key for this gear
+        public String key(String name) {
+            return prefix + name;
+        }
+    }
+
+    private static volatile Gear gear = Gear.LOW;
+    // The valves keep their last position through a reboot, so the first setGear() always fires
+    private static boolean shifterKnown = false;
+
     
     public static Compressor compressor = new Compressor(1);
     public static final DoubleSolenoid shifter = new DoubleSolenoid(1, 0, 1);
     
 
     public static final AHRS gyro = new AHRS(SPI.Port.kMXP);
-    public static final TalonSRX leftMotorA = new TalonSRX(1), leftMotorB = new TalonSRX(2), leftMotorC = new TalonSRX(3),
-            rightMotorA = new TalonSRX(4), rightMotorB = new TalonSRX(6), rightMotorC = new TalonSRX(7);
+    public static final ShadowTalonSRX leftMotorA = new ShadowTalonSRX(1), leftMotorB = new ShadowTalonSRX(2), leftMotorC = new ShadowTalonSRX(3),
+            rightMotorA = new ShadowTalonSRX(4), rightMotorB = new ShadowTalonSRX(6), rightMotorC = new ShadowTalonSRX(7);
 
     // Creates arrays for various motors so I can call the same methods for each at
     // the same time
-    public static final TalonSRX[] motors = { leftMotorA, leftMotorB, leftMotorC, rightMotorA, rightMotorB, rightMotorC};
-    private static final TalonSRX[] leftMotors = { leftMotorA, leftMotorB, leftMotorC };
-    private static final TalonSRX[] rightMotors = { rightMotorA, rightMotorB, rightMotorC };
+    public static final ShadowTalonSRX[] motors = { leftMotorA, leftMotorB, leftMotorC, rightMotorA, rightMotorB, rightMotorC};
+    private static final ShadowTalonSRX[] leftMotors = { leftMotorA, leftMotorB, leftMotorC };
+    private static final ShadowTalonSRX[] rightMotors = { rightMotorA, rightMotorB, rightMotorC };
+
+    // Everything the loop reads and drives goes through these, so the simulator can swap them out
+    private static DriveMotor leftSide = new TalonDriveMotor(leftMotorA, leftMotorB, leftMotorC);
+    private static DriveMotor rightSide = new TalonDriveMotor(rightMotorA, rightMotorB, rightMotorC);
+    private static DriveGyro headingSensor = gyro::getAngle;
+    private static DoubleSupplier clock = Timer::getFPGATimestamp;
 
     private static int ledval = 0;
 
+    // Last neutral mode asked for, put back after a Talon reset; null until set
+    private static NeutralMode neutralMode = null;
+
+    // Sensor snapshot, sampled once at the top of each loop by sample() so commands
+    // don't each make their own JNI calls into Phoenix and the navX
+    private static final class Snapshot {
+        int leftPosition, rightPosition;
+        int leftVelocity, rightVelocity;
+        double leftVoltage, rightVoltage;
+        double leftCurrent, rightCurrent;
+        double heading;
+        double timestamp;
+    }
+
+    // Each thread reads its own copy, so every value a loop sees comes from the same sample: the
+    // DriveLoop thread uses the one it sampled, everyone else (the main robot thread) the one
+    // sampled on the main loop or copied by refresh()
+    private static final Snapshot loopView = new Snapshot();
+    private static final Snapshot mainView = new Snapshot();
+
+    // Latest sample as raw bits, handed between threads with a single-writer seqlock like
+    // DriveLoop's setpoints; odd while the writer is mid-update
+    private static final int kLeftPosition = 0, kRightPosition = 1, kLeftVelocity = 2, kRightVelocity = 3;
+    private static final int kLeftVoltage = 4, kRightVoltage = 5, kLeftCurrent = 6, kRightCurrent = 7;
+    private static final int kHeading = 8, kTimestamp = 9, kSnapshotFields = 10;
+    private static final AtomicLongArray published = new AtomicLongArray(kSnapshotFields);
+    private static volatile long sequence = 0;
+
+    // Software zero points set by resetEncoders() and resetGyro()
+    private static volatile int leftOffset = 0, rightOffset = 0;
+    private static volatile double headingOffset = 0;
+
+    // Feedforward gains per gear and side (volts, volts per m/s, volts per m/s^2), indexed by Gear.ordinal()
+    // and measured by CharacterizeDrive. Low gear defaults are the intercepts and kV PathFollower has been
+    // using; high gear defaults are the intercepts and slopes in CurvatureDrive (582 and 553 ticks/100ms per volt)
+    private static final double[] kLeftS = { 0.968, 1.3677 };
+    private static final double[] kLeftV = { 12 / 2.872716583788768, kTicksPerMeter / 5820 };
+    private static final double[] kLeftA = { 0, 0 };
+    private static final double[] kRightS = { 1.058, 1.3309 };
+    private static final double[] kRightV = { 12 / 2.872716583788768, kTicksPerMeter / 5530 };
+    private static final double[] kRightA = { 0, 0 };
+
+    // Talon velocity loop P per gear, full output (1023) per tick per 100 ms of error; not tuned on the robot
+    private static final double[] kVelocityP = { 0.5, 0.5 };
+
     public void initDefaultCommand() {
         setDefaultCommand(new Drive());
     }
 
     private DrivetrainSubsystem() {
+        configure();
+        loadGains();
+    }
+
+    // Everything the Talons lose when they reset; only values that differ from the shadows go out
+    private static void configure() {
         // Setting leader and follower talons
         leftMotorB.follow(leftMotorA);
         leftMotorC.follow(leftMotorA);
@@ -69,7 +162,7 @@ public class DrivetrainSubsystem extends Subsystem {
         Arrays.stream(rightMotors).forEach(motor -> motor.setInverted(false));
 
         // Setting common settings for Talons
-        for (TalonSRX motor : motors) {
+        for (ShadowTalonSRX motor : motors) {
 
             // Current and voltage settings
             motor.configPeakCurrentLimit(20, kTimeout);
@@ -103,65 +196,324 @@ public class DrivetrainSubsystem extends Subsystem {
         rightMotorA.configSelectedFeedbackSensor(FeedbackDevice.QuadEncoder, 0, 10);
         rightMotorA.setSensorPhase(false);
 
+        if (neutralMode != null) {
+            leftSide.setNeutralMode(neutralMode);
+            rightSide.setNeutralMode(neutralMode);
+        }
+    }
+
+    /**
+     * Sends the configuration again if any Talon has reset (brownout, tripped breaker) since the
+     * last call; without this the shadows would keep suppressing the settings it lost. Polled
+     * from robotPeriodic.
+     */
+    public static void checkResets() {
+        boolean reset = false;
+        for (ShadowTalonSRX motor : motors) {
+            // Every flag has to be read, it clears when read
+            reset |= motor.checkReset();
+        }
+        if (reset) {
+            System.out.println("Drivetrain Talon reset, sending its configuration again");
+            configure();
+            loadGains();
+        }
+    }
+
+    /**
+     * Loads feedforward gains for both gears from /home/lvuser/gains/drivetrain.properties, keeping
+     * the defaults for anything that hasn't been characterized yet, and sends each gear's velocity
+     * gains to its Talon slot
+     */
+    public static void loadGains() {
+        GainsFile gains = new GainsFile("drivetrain");
+        for (Gear g : Gear.values()) {
+            int i = g.ordinal();
+            kLeftS[i] = gains.get(g.key("left.kS"), kLeftS[i]);
+            kLeftV[i] = gains.get(g.key("left.kV"), kLeftV[i]);
+            kLeftA[i] = gains.get(g.key("left.kA"), kLeftA[i]);
+            kRightS[i] = gains.get(g.key("right.kS"), kRightS[i]);
+            kRightV[i] = gains.get(g.key("right.kV"), kRightV[i]);
+            kRightA[i] = gains.get(g.key("right.kA"), kRightA[i]);
+            kVelocityP[i] = gains.get(g.key("velocity.kP"), kVelocityP[i]);
+
+            leftSide.configVelocityGains(g.velocitySlot, toTalonKf(kLeftV[i]), kVelocityP[i]);
+            rightSide.configVelocityGains(g.velocitySlot, toTalonKf(kRightV[i]), kVelocityP[i]);
+        }
+    }
+
+    /**
+     * Talon kF (full output 1023 per tick per 100 ms) for a kV in volts per m/s
+     */
+    public static double toTalonKf(double kV) {
+        return 1023 * kV / kNominalVoltage * 10 / kTicksPerMeter;
+    }
+
+    public static Gear getGear() {
+        return gear;
+    }
+
+    // Feedforward voltage in the current gear for a wheel velocity (m/s) and acceleration (m/s^2)
+    public static double getLeftFeedforward(double velocity, double acceleration) {
+        int i = gear.ordinal();
+        return kLeftS[i] * Math.signum(velocity) + kLeftV[i] * velocity + kLeftA[i] * acceleration;
+    }
+
+    public static double getRightFeedforward(double velocity, double acceleration) {
+        int i = gear.ordinal();
+        return kRightS[i] * Math.signum(velocity) + kRightV[i] * velocity + kRightA[i] * acceleration;
+    }
+
+    // Gains in the current gear averaged over both sides, for limiting generated paths to the voltage the drivetrain has
+    public static double getAverageKs() {
+        return (kLeftS[gear.ordinal()] + kRightS[gear.ordinal()]) / 2;
+    }
+
+    public static double getAverageKv() {
+        return (kLeftV[gear.ordinal()] + kRightV[gear.ordinal()]) / 2;
+    }
+
+    public static double getAverageKa() {
+        return (kLeftA[gear.ordinal()] + kRightA[gear.ordinal()]) / 2;
+    }
+
+    // Fastest wheel speed in m/s both sides can hold in the current gear
+    public static double getMaxSpeed() {
+        return getMaxSpeed(gear);
+    }
+
+    public static double getMaxSpeed(Gear g) {
+        int i = g.ordinal();
+        return Math.min((kNominalVoltage - kLeftS[i]) / kLeftV[i], (kNominalVoltage - kRightS[i]) / kRightV[i]);
+    }
+
+    public static double toMeters(double ticks) {
+        return ticks / kTicksPerMeter;
+    }
+
+    // Converts a Talon velocity (ticks per 100 ms) to m/s
+    public static double toMetersPerSecond(double ticksPer100ms) {
+        return ticksPer100ms * 10 / kTicksPerMeter;
+    }
+
+    /**
+     * Replaces the motors, gyro and clock the drivetrain uses, for running commands against
+     * frc.robot.Simulation.DrivetrainPlant instead of the robot
+     */
+    public static void setHardware(DriveMotor left, DriveMotor right, DriveGyro gyro, DoubleSupplier time) {
+        leftSide = left;
+        rightSide = right;
+        headingSensor = gyro;
+        clock = time;
+    }
+
+    private static Snapshot view() {
+        return DriveLoop.isLoopThread() ? loopView : mainView;
+    }
+
+    /**
+     * Reads every drivetrain sensor once into the calling thread's snapshot and publishes it;
+     * call this before Scheduler.run() so every command in the loop sees the same values. Only
+     * one thread may sample at a time (DriveLoop while it runs, otherwise the main loop).
+     */
+    public static void sample() {
+        Snapshot snapshot = view();
+        snapshot.leftPosition = leftSide.getPosition();
+        snapshot.rightPosition = rightSide.getPosition();
+        snapshot.leftVelocity = leftSide.getVelocity();
+        snapshot.rightVelocity = rightSide.getVelocity();
+        snapshot.leftVoltage = leftSide.getVoltage();
+        snapshot.rightVoltage = rightSide.getVoltage();
+        snapshot.leftCurrent = leftSide.getCurrent();
+        snapshot.rightCurrent = rightSide.getCurrent();
+        snapshot.heading = headingSensor.getAngle();
+        snapshot.timestamp = clock.getAsDouble();
+
+        publish(snapshot);
+        Odometry.update();
+    }
+
+    private static void publish(Snapshot snapshot) {
+        long start = sequence;
+        sequence = start + 1;
+        published.set(kLeftPosition, snapshot.leftPosition);
+        published.set(kRightPosition, snapshot.rightPosition);
+        published.set(kLeftVelocity, snapshot.leftVelocity);
+        published.set(kRightVelocity, snapshot.rightVelocity);
+        published.set(kLeftVoltage, Double.doubleToRawLongBits(snapshot.leftVoltage));
+        published.set(kRightVoltage, Double.doubleToRawLongBits(snapshot.rightVoltage));
+        published.set(kLeftCurrent, Double.doubleToRawLongBits(snapshot.leftCurrent));
+        published.set(kRightCurrent, Double.doubleToRawLongBits(snapshot.rightCurrent));
+        published.set(kHeading, Double.doubleToRawLongBits(snapshot.heading));
+        published.set(kTimestamp, Double.doubleToRawLongBits(snapshot.timestamp));
+        sequence = start + 2;
+    }
+
+    /**
+     * Copies the latest snapshot DriveLoop published into the main thread's view; call this
+     * instead of sample() at the top of the loop while DriveLoop runs
+     */
+    public static void refresh() {
+        long before, after;
+        do {
+            before = sequence;
+            mainView.leftPosition = (int) published.get(kLeftPosition);
+            mainView.rightPosition = (int) published.get(kRightPosition);
+            mainView.leftVelocity = (int) published.get(kLeftVelocity);
+            mainView.rightVelocity = (int) published.get(kRightVelocity);
+            mainView.leftVoltage = Double.longBitsToDouble(published.get(kLeftVoltage));
+            mainView.rightVoltage = Double.longBitsToDouble(published.get(kRightVoltage));
+            mainView.leftCurrent = Double.longBitsToDouble(published.get(kLeftCurrent));
+            mainView.rightCurrent = Double.longBitsToDouble(published.get(kRightCurrent));
+            mainView.heading = Double.longBitsToDouble(published.get(kHeading));
+            mainView.timestamp = Double.longBitsToDouble(published.get(kTimestamp));
+            after = sequence;
+        } while ((before & 1) != 0 || before != after);
+    }
+
+    // Encoder positions in ticks since the last resetEncoders()
+    public static int getLeftPosition() {
+        return view().leftPosition - leftOffset;
+    }
+
+    public static int getRightPosition() {
+        return view().rightPosition - rightOffset;
+    }
+
+    // Encoder positions as the Talons report them, for Odometry
+    static int getRawLeftPosition() {
+        return view().leftPosition;
+    }
+
+    static int getRawRightPosition() {
+        return view().rightPosition;
+    }
+
+    // Encoder velocities in ticks per 100 ms
+    public static int getLeftVelocity() {
+        return view().leftVelocity;
+    }
+
+    public static int getRightVelocity() {
+        return view().rightVelocity;
+    }
+
+    public static double getLeftVoltage() {
+        return view().leftVoltage;
+    }
+
+    public static double getRightVoltage() {
+        return view().rightVoltage;
+    }
+
+    public static double getLeftCurrent() {
+        return view().leftCurrent;
+    }
+
+    public static double getRightCurrent() {
+        return view().rightCurrent;
+    }
+
+    // navX angle in degrees since the last resetGyro(), clockwise positive
+    public static double getHeading() {
+        return view().heading - headingOffset;
+    }
+
+    // navX angle as the sensor reports it, for Odometry
+    static double getRawHeading() {
+        return view().heading;
+    }
+
+    // FPGA time in seconds when the snapshot was taken
+    public static double getTimestamp() {
+        return view().timestamp;
     }
 
     public static void setOpenLoopRamp(double ramp) {
-        leftMotorA.configOpenloopRamp(ramp, 0);
-        rightMotorA.configOpenloopRamp(ramp, 0);
+        leftSide.setOpenLoopRamp(ramp);
+        rightSide.setOpenLoopRamp(ramp);
     }
 
     // Sets drivetrain sides to speed parameters
     public static void drive(double leftspeed, double rightspeed) {
 
-        leftMotorA.set(ControlMode.PercentOutput, leftspeed);
-        rightMotorA.set(ControlMode.PercentOutput, rightspeed);
+        // While the fast loop runs only its thread talks to the Talons, everyone else hands it a setpoint
+        if (DriveLoop.isRunning() && !DriveLoop.isLoopThread()) {
+            DriveLoop.setSetpoint(leftspeed, rightspeed);
+            return;
+        }
+
+        leftSide.set(ControlMode.PercentOutput, leftspeed);
+        rightSide.set(ControlMode.PercentOutput, rightspeed);
+
+    }
 
+    /**
+     * Closed loop wheel speeds in m/s: the Talons run the current gear's velocity slot (kF from kV)
+     * with kS added as an arbitrary feedforward
+     *
+     * The Talons close the loop themselves, so this is sent from the calling thread even while
+     * DriveLoop runs; the caller has to keep DriveLoop off the outputs (VelocityDrive installs an
+     * idle controller)
+     */
+    public static void driveVelocity(double left, double right) {
+        int i = gear.ordinal();
+        leftSide.selectProfileSlot(gear.velocitySlot);
+        rightSide.selectProfileSlot(gear.velocitySlot);
+        leftSide.setVelocity(left * kTicksPerMeter / 10, kLeftS[i] * Math.signum(left) / kNominalVoltage);
+        rightSide.setVelocity(right * kTicksPerMeter / 10, kRightS[i] * Math.signum(right) / kNominalVoltage);
     }
 
     // Sets drivetrain sides to an encoder target
     public static void driveDistance(double targetLeft, double targetRight) {
 
-        leftMotorA.set(ControlMode.MotionMagic, targetLeft);
-        rightMotorA.set(ControlMode.MotionMagic, targetRight);
+        leftSide.selectProfileSlot(kMotionMagicSlot);
+        rightSide.selectProfileSlot(kMotionMagicSlot);
+        leftSide.set(ControlMode.MotionMagic, targetLeft);
+        rightSide.set(ControlMode.MotionMagic, targetRight);
 
     }
 
-/*
-    public static void shiftGear() {
-        switch (shifter.get()) {
-        case kForward:
-            shifter.set(DoubleSolenoid.Value.kReverse);
-            System.out.println("Shifting to low gear!");
-            break;
-        default:
-            shifter.set(DoubleSolenoid.Value.kForward);
-            System.out.println("Shifting to high gear!");
-            break;
+    /**
+     * Shifts both sides (forward is high gear); the feedforward and velocity slot follow on the
+     * next call that uses them. Only touches the solenoid when the gear changes.
+     */
+    public static void setGear(Gear newGear) {
+        if (newGear == gear && shifterKnown) {
+            return;
         }
+        shifter.set(newGear == Gear.HIGH ? DoubleSolenoid.Value.kForward : DoubleSolenoid.Value.kReverse);
+        gear = newGear;
+        shifterKnown = true;
     }
 
-    public static void shiftGear(DoubleSolenoid.Value shiftTo) {
-        shifter.set(shiftTo);
-        System.out.println("Shifting gears!");
+    public static void shiftGear() {
+        setGear(gear == Gear.LOW ? Gear.HIGH : Gear.LOW);
     }
-*/
     
 
+    // Zeroes the encoders in software; a Talon reset blocks for its timeout and isn't
+    // visible until the next status frame anyway
     public static void resetEncoders() {
-        leftMotorA.setSelectedSensorPosition(0, 0, 10);
-        rightMotorA.setSelectedSensorPosition(0, 0, 10);
+        Snapshot snapshot = view();
+        leftOffset = snapshot.leftPosition;
+        rightOffset = snapshot.rightPosition;
     }
 
     public static void resetGyro() {
-        gyro.reset();
+        headingOffset = view().heading;
     }
 
     public static void setBrakeMode() {
-        Arrays.stream(motors).forEach(motor -> motor.setNeutralMode(NeutralMode.Brake));
+        neutralMode = NeutralMode.Brake;
+        leftSide.setNeutralMode(NeutralMode.Brake);
+        rightSide.setNeutralMode(NeutralMode.Brake);
     }
 
     public static void setCoastMode() {
-        Arrays.stream(motors).forEach(motor -> motor.setNeutralMode(NeutralMode.Coast));
+        neutralMode = NeutralMode.Coast;
+        leftSide.setNeutralMode(NeutralMode.Coast);
+        rightSide.setNeutralMode(NeutralMode.Coast);
     }
     /*
     public static void stopCompressor() {
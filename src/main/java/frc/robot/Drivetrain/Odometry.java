@@ -0,0 +1,148 @@
+package frc.robot.Drivetrain;
+
+/**
+ * Dead reckoning pose estimate from the drive encoders and the navX
+ *
+ * update() runs every time DrivetrainSubsystem.sample() does, so it follows DriveLoop's rate when
+ * that is running. Distance comes from the encoder deltas and heading straight from the gyro, which
+ * drifts far less than a heading from wheel slip. Raw sensor values are used, so resetEncoders()
+ * and resetGyro() don't disturb the pose and nothing ever has to wait on a Talon reset.
+ *
+ * Every update is also written into a timestamped ring buffer so latency compensated code (vision)
+ * can ask where the robot was when a measurement was taken.
+ */
+public class Odometry {
+
+    // Power of two; 128 samples covers 2.5 s at 20 ms and 1.2 s at 10 ms
+    private static final int kHistorySize = 128;
+    private static final int kHistoryMask = kHistorySize - 1;
+    // Entries this close to being overwritten are not read, so a reader on another thread never
+    // sees one half updated
+    private static final int kHistoryMargin = 8;
+
+    private static final double[] historyTime = new double[kHistorySize];
+    private static final double[] historyX = new double[kHistorySize];
+    private static final double[] historyY = new double[kHistorySize];
+    private static final double[] historyTheta = new double[kHistorySize];
+    private static volatile int historyCount = 0;
+
+    // Integration state, only touched by the thread calling update()
+    private static double x = 0, y = 0, theta = 0;
+    private static double thetaOffset = 0;
+    private static int lastLeft, lastRight;
+    private static boolean initialized = false;
+
+    private static volatile boolean resetPending = false;
+    private static double resetX, resetY, resetTheta;
+
+    /**
+     * Integrates the latest sensor snapshot, called from DrivetrainSubsystem.sample()
+     */
+    static void update() {
+        int left = DrivetrainSubsystem.getRawLeftPosition();
+        int right = DrivetrainSubsystem.getRawRightPosition();
+        double gyroTheta = -Math.toRadians(DrivetrainSubsystem.getRawHeading());
+
+        if (resetPending) {
+            x = resetX;
+            y = resetY;
+            theta = resetTheta;
+            thetaOffset = resetTheta - gyroTheta;
+            initialized = true;
+            resetPending = false;
+        } else if (!initialized) {
+            thetaOffset = -gyroTheta;
+            initialized = true;
+        } else {
+            double newTheta = gyroTheta + thetaOffset;
+            double distance = ((left - lastLeft) + (right - lastRight)) / (2 * DrivetrainSubsystem.kTicksPerMeter);
+
+            // The midpoint heading follows an arc much more closely than the heading at either end
+            double midTheta = (theta + newTheta) / 2;
+            x += distance * Math.cos(midTheta);
+            y += distance * Math.sin(midTheta);
+            theta = newTheta;
+        }
+        lastLeft = left;
+        lastRight = right;
+
+        int i = historyCount & kHistoryMask;
+        historyTime[i] = DrivetrainSubsystem.getTimestamp();
+        historyX[i] = x;
+        historyY[i] = y;
+        historyTheta[i] = theta;
+        historyCount++;
+    }
+
+    /**
+     * Moves the pose estimate, takes effect at the next sample
+     *
+     * @param theta   radians, counter clockwise positive
+     */
+    public static void reset(double x, double y, double theta) {
+        resetX = x;
+        resetY = y;
+        resetTheta = theta;
+        resetPending = true;
+    }
+
+    public static void reset() {
+        reset(0, 0, 0);
+    }
+
+    /**
+     * Copies the latest pose into out
+     *
+     * @return out, for chaining
+     */
+    public static Pose getPose(Pose out) {
+        int count = historyCount;
+        if (count == 0) {
+            return out.set(0, 0, 0);
+        }
+        int i = (count - 1) & kHistoryMask;
+        return out.set(historyX[i], historyY[i], historyTheta[i]);
+    }
+
+    /**
+     * Looks up the pose at an earlier time, interpolating between samples
+     *
+     * @param time   FPGA timestamp in seconds
+     * @param out    filled with the pose; clamped to the oldest or newest sample if outside the history
+     * @return       false if the time is older than the history and out is only the oldest sample
+     */
+    public static boolean getPoseAt(double time, Pose out) {
+        int count = historyCount;
+        if (count == 0) {
+            out.set(0, 0, 0);
+            return false;
+        }
+
+        int newest = count - 1;
+        int available = Math.min(count, kHistorySize - kHistoryMargin);
+
+        int i = newest & kHistoryMask;
+        if (time >= historyTime[i]) {
+            out.set(historyX[i], historyY[i], historyTheta[i]);
+            return true;
+        }
+
+        for (int k = 1; k < available; k++) {
+            int older = (newest - k) & kHistoryMask;
+            if (historyTime[older] <= time) {
+                int newer = (older + 1) & kHistoryMask;
+                double span = historyTime[newer] - historyTime[older];
+                double t = span > 0 ? (time - historyTime[older]) / span : 0;
+                out.set(historyX[older] + (historyX[newer] - historyX[older]) * t,
+                        historyY[older] + (historyY[newer] - historyY[older]) * t,
+                        historyTheta[older] + (historyTheta[newer] - historyTheta[older]) * t);
+                return true;
+            }
+        }
+
+        int oldest = (newest - available + 1) & kHistoryMask;
+        out.set(historyX[oldest], historyY[oldest], historyTheta[oldest]);
+        return false;
+    }
+
+}
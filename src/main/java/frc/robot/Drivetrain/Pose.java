@@ -0,0 +1,35 @@
+package frc.robot.Drivetrain;
+
+/**
+ * Field relative robot pose, meters and radians (counter clockwise positive, like Pathfinder)
+ *
+ * Mutable so loops can keep one instance and have Odometry fill it in without allocating.
+ */
+public class Pose {
+
+    public double x, y, theta;
+
+    public Pose() {
+    }
+
+    public Pose(double x, double y, double theta) {
+        set(x, y, theta);
+    }
+
+    public Pose set(double x, double y, double theta) {
+        this.x = x;
+        this.y = y;
+        this.theta = theta;
+        return this;
+    }
+
+    public Pose set(Pose other) {
+        return set(other.x, other.y, other.theta);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("(%.3f, %.3f, %.1f deg)", x, y, Math.toDegrees(theta));
+    }
+
+}
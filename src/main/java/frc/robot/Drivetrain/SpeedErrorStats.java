@@ -0,0 +1,86 @@
+package frc.robot.Drivetrain;
+
+import frc.robot.Telemetry.Telemetry;
+
+/**
+ * Wheel speed tracking error of a teleop drive command, so open loop Drive and closed loop
+ * VelocityDrive can be compared on the same practice session
+ *
+ * Each loop's measured speeds are compared with the speeds asked for on the previous loop, since
+ * the snapshot is taken before the command runs; both modes are judged after the same delay.
+ * Loops where the driver asked for nothing are left out.
+ */
+class SpeedErrorStats {
+
+    private final String name;
+    private final int errorHandle;
+
+    private double lastLeft, lastRight;
+    private boolean hasLast = false;
+
+    private double squaredSum = 0, absoluteSum = 0, max = 0;
+    private long samples = 0;
+
+    SpeedErrorStats(String name) {
+        this.name = name;
+        errorHandle = Telemetry.register(name + " speed error", 0.02, 0);
+    }
+
+    // Call when the command starts, so the first loop isn't compared with an old target
+    void restart() {
+        hasLast = false;
+    }
+
+    /**
+     * @param leftTarget    wheel speed asked for this loop, m/s
+     * @param rightTarget   same
+     */
+    void record(double leftTarget, double rightTarget) {
+        if (hasLast && (lastLeft != 0 || lastRight != 0)) {
+            double leftError = DrivetrainSubsystem.toMetersPerSecond(DrivetrainSubsystem.getLeftVelocity()) - lastLeft;
+            double rightError = DrivetrainSubsystem.toMetersPerSecond(DrivetrainSubsystem.getRightVelocity()) - lastRight;
+
+            squaredSum += leftError * leftError + rightError * rightError;
+            absoluteSum += Math.abs(leftError) + Math.abs(rightError);
+            max = Math.max(max, Math.max(Math.abs(leftError), Math.abs(rightError)));
+            samples += 2;
+
+            Telemetry.put(errorHandle, (Math.abs(leftError) + Math.abs(rightError)) / 2);
+        }
+        lastLeft = leftTarget;
+        lastRight = rightTarget;
+        hasLast = true;
+    }
+
+    long getSamples() {
+        return samples;
+    }
+
+    // m/s
+    double getRms() {
+        return samples > 0 ? Math.sqrt(squaredSum / samples) : 0;
+    }
+
+    double getMean() {
+        return samples > 0 ? absoluteSum / samples : 0;
+    }
+
+    double getMax() {
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-12s rms %.3f m/s, mean %.3f m/s, max %.3f m/s over %d wheel samples",
+                name, getRms(), getMean(), getMax(), samples);
+    }
+
+    void reset() {
+        squaredSum = 0;
+        absoluteSum = 0;
+        max = 0;
+        samples = 0;
+        hasLast = false;
+    }
+
+}
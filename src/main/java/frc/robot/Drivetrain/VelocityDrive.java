@@ -0,0 +1,97 @@
+package frc.robot.Drivetrain;
+
+import frc.robot.Robot;
+import frc.robot.Control.InputShaper;
+import frc.robot.Diagnostics.ProfiledCommand;
+import frc.robot.Drivetrain.DrivetrainSubsystem.Gear;
+import frc.robot.Telemetry.Telemetry;
+
+/**
+ * Teleop drive with closed loop wheel speeds
+ *
+ * Mixes the sticks like Drive, then scales each side to the top speed (high gear's while
+ * AutoShifter is on, otherwise the current gear's) and hands it to
+ * DrivetrainSubsystem.driveVelocity(), so a given stick position is the same speed whatever the
+ * battery or load. Toggled against Drive from the controller; dump() prints the speed
+ * tracking error of both for comparison.
+ */
+public class VelocityDrive extends ProfiledCommand {
+
+    private static final double kJoystickDeadband = 0.03;
+
+    private final InputShaper throttleShaper = new InputShaper().deadband(kJoystickDeadband);
+    private final InputShaper turnShaper = new InputShaper().deadband(kJoystickDeadband);
+
+    //The Talons run the velocity loop, so DriveLoop only has to stay off the outputs
+    private final DriveLoop.Controller idleStep = () -> {};
+
+    static final SpeedErrorStats closedLoopError = new SpeedErrorStats("Closed loop");
+
+    private static final int kLeftTarget = Telemetry.register("Velocity drive left target", 0.02, 0);
+    private static final int kRightTarget = Telemetry.register("Velocity drive right target", 0.02, 0);
+
+    public VelocityDrive(){
+        requires(DrivetrainSubsystem.getInstance());
+    }
+
+    @Override
+    protected boolean isFinished() {
+        return false;
+    }
+
+    protected void onInitialize(){
+        closedLoopError.restart();
+    }
+
+    protected void onExecute(){
+        if(DriveLoop.isRunning()){
+            DriveLoop.setController(idleStep);
+        }
+
+        double throttle = throttleShaper.calculate(Robot.oi.throttleValue());
+        double turn = turnShaper.calculate(Robot.oi.turnValue());
+
+        double leftStick = clamp(Drive.mixLeft(throttle, turn), 1);
+        double rightStick = clamp(Drive.mixRight(throttle, turn), 1);
+        AutoShifter.update(Math.abs(leftStick) > Math.abs(rightStick) ? leftStick : rightStick);
+
+        //With automatic shifting the stick covers both gears, so a shift doesn't change what it asks for;
+        //targets the current gear can't reach are capped at its top speed
+        double topSpeed = AutoShifter.isEnabled() ? DrivetrainSubsystem.getMaxSpeed(Gear.HIGH) : DrivetrainSubsystem.getMaxSpeed();
+        double gearSpeed = DrivetrainSubsystem.getMaxSpeed();
+        double left = clamp(leftStick * topSpeed, gearSpeed);
+        double right = clamp(rightStick * topSpeed, gearSpeed);
+
+        closedLoopError.record(left, right);
+        Telemetry.put(kLeftTarget, left);
+        Telemetry.put(kRightTarget, right);
+
+        DrivetrainSubsystem.driveVelocity(left, right);
+    }
+
+    private static double clamp(double value, double limit){
+        return Math.max(-limit, Math.min(limit, value));
+    }
+
+    protected void onEnd(){
+        DriveLoop.clearController(idleStep);
+        //Back to open loop so whatever runs next doesn't inherit a velocity target
+        DrivetrainSubsystem.drive(0, 0);
+    }
+
+    /**
+     * Prints open and closed loop speed tracking error side by side and clears both; meant to be
+     * called from disabledInit
+     */
+    public static void dump(){
+        if(Drive.openLoopError.getSamples() == 0 && closedLoopError.getSamples() == 0){
+            return;
+        }
+        System.out.println("Teleop speed tracking error:");
+        System.out.println("  " + Drive.openLoopError);
+        System.out.println("  " + closedLoopError);
+        Drive.openLoopError.reset();
+        closedLoopError.reset();
+    }
+
+}
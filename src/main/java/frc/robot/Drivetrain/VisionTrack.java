@@ -1,26 +1,45 @@
 package frc.robot.Drivetrain;
 
 import edu.wpi.first.wpilibj.DigitalInput;
-import edu.wpi.first.wpilibj.command.Command;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import frc.robot.Robot;
+import frc.robot.Diagnostics.ProfiledCommand;
 import frc.robot.OI.PIDController;
+import frc.robot.Telemetry.Telemetry;
+import frc.robot.Vision.Limelight;
+import frc.robot.Vision.VisionTarget;
 
-public class VisionTrack extends Command {
+public class VisionTrack extends ProfiledCommand {
 
     private double left, right;
     
-    private double aim_kP = 0.01;
-    private double aim_kI = 0;
-    private double aim_kD = 0;
-
-    private double dist_kP = 0;
-    private double dist_kI = 0;
-    private double dist_kD = 0;
-
-    private double kFriction = 0.05;
+    private double aim_kP = 0.03; //The aim loop runs on the gyro without camera delay, so it can take a higher gain
+    private double aim_kI = 0.03;
+    private double aim_kD = 0.001;
+
+    private double dist_kP = 0.06; //Per degree of ty; about 4 cm per degree at 1 m, less sensitive further out
+    private double dist_kI = 0.03;
+    private double dist_kD = 0.002;
+
+    private double kFriction = 0.05; //Static feedforward on the aim loop, only applied outside kAimTolerance
+    private double kAimTolerance = 0.5; //Degrees
+    private double kDistanceTolerance = 0.5; //Degrees of ty
+
+    //Field relative heading of the target (radians, counter clockwise positive like Odometry),
+    //worked out from where the robot was pointing when the frame was captured
+    private double targetHeading;
+    private boolean hasTargetHeading = false;
+    private long lastFrame = 0;
+
+    private final Pose pose = new Pose();
+    private final Pose capturePose = new Pose();
     private double kSensQT = 0.5;
 
+    private static final int kHasTarget = Telemetry.registerBoolean("Has Target");
+    private static final int kDistanceError = Telemetry.register("distance_err", 0.05, 0.01);
+    private static final int kHeadingError = Telemetry.register("heading_error", 0.05, 0.01);
+    private static final int kLeft = Telemetry.register("left", 0.05, 0.001);
+    private static final int kRight = Telemetry.register("right", 0.05, 0.001);
+
     private PIDController aim = new PIDController(aim_kP, aim_kI, aim_kD, 0.02);
     private PIDController distance = new PIDController(dist_kP, dist_kI, dist_kD, 0.02);
 
@@ -28,36 +47,72 @@ public class VisionTrack extends Command {
     public VisionTrack() {
         requires(Robot.drivetrain);
 
+        //Integral only works on the last few degrees, so it can't wind up while the robot swings onto the target,
+        //and is capped at 0.06 output, enough to break friction when P and kFriction alone stall short of it
+        aim.setStaticFeedforward(kFriction);
+        aim.setTolerance(kAimTolerance);
+        aim.setIntegralLimits(2, 5);
+        aim.setDerivativeFilter(0.06); //Limelight tx is noisy at 90 Hz, filter the derivative over a few frames
+        aim.setOutputLimits(-0.5, 0.5);
+
+        //Same friction and integral treatment as the aim loop; P alone stops 10-20 cm short
+        distance.setStaticFeedforward(kFriction);
+        distance.setTolerance(kDistanceTolerance);
+        distance.setIntegralLimits(2, 3);
+        distance.setDerivativeFilter(0.06);
+        distance.setOutputLimits(-0.5, 0.5);
     }
 
-    protected void execute() {
+    protected void onInitialize() {
+        aim.reset();
+        distance.reset();
+        hasTargetHeading = false;
+        lastFrame = 0;
+    }
+
+    protected void onExecute() {
 
         double qLeft = Robot.oi.getLeftTrigger();
         double qRight = Robot.oi.getRightTrigger();
 
-        double heading_error;
-        double distance_error;
+        double distance_error = 0;
 
-        if (!Robot.oi.getTargetValid()) {
+        //One snapshot per loop so every value below comes from the same frame
+        VisionTarget target = Limelight.getTarget();
 
-            SmartDashboard.putBoolean("Has Target", false);
+        if (target.valid) {
 
-            heading_error = Robot.oi.getLastValidXOffset();
-            distance_error = 0;
-            
-        } else {
+            Telemetry.put(kHasTarget, true);
 
-            SmartDashboard.putBoolean("Has Target", true);
+            //Each new frame moves the target heading to where the camera saw it, using the heading
+            //history at capture time instead of the current heading
+            if (target.frame != lastFrame) {
+                lastFrame = target.frame;
 
-            heading_error = Robot.oi.getxOffset();
-            distance_error = Robot.oi.getyOffset();
+                Odometry.getPoseAt(target.captureTime, capturePose);
+                targetHeading = capturePose.theta + Math.toRadians(target.xOffset);
+                hasTargetHeading = true;
+            }
 
+            distance_error = target.yOffset;
+
+        } else {
+
+            //Keeps turning toward the last field relative target heading on the gyro alone
+            Telemetry.put(kHasTarget, false);
+
+            //There is no distance without the camera, so the integral mustn't keep driving the robot
+            distance.reset();
 
         }
 
-        SmartDashboard.putNumber("distance_err", distance_error);
+        //Closed on the gyro every loop, the camera only moves the target
+        Odometry.getPose(pose);
+        double heading_error = hasTargetHeading ? Math.toDegrees(targetHeading - pose.theta) : 0;
+
+        Telemetry.put(kDistanceError, distance_error);
 
-        SmartDashboard.putNumber("heading_error", heading_error);
+        Telemetry.put(kHeadingError, heading_error);
 
         double steering_adjust = aim.calculate(heading_error);
         double distance_adjust = distance.calculate(distance_error);
@@ -65,14 +120,11 @@ public class VisionTrack extends Command {
         left = distance_adjust - steering_adjust;
         right = distance_adjust + steering_adjust;
 
-        left += left > 0 ? kFriction : -kFriction;
-        right += right > 0 ? kFriction : -kFriction;
-
         DrivetrainSubsystem.drive(Robot.oi.throttleValue() + kSensQT * (-qLeft + qRight) + left,
                 Robot.oi.throttleValue() + kSensQT * (-qRight + qLeft) + right);
 
-        SmartDashboard.putNumber("left", left);
-        SmartDashboard.putNumber("right", right);
+        Telemetry.put(kLeft, left);
+        Telemetry.put(kRight, right);
 
     }
 
@@ -80,7 +132,7 @@ public class VisionTrack extends Command {
         return false;
     }
 
-    protected void end() {
+    protected void onEnd() {
         DrivetrainSubsystem.drive(0, 0);
     }
 
@@ -0,0 +1,281 @@
+package frc.robot.Elevator;
+
+import edu.wpi.first.wpilibj.Timer;
+import frc.robot.Robot;
+import frc.robot.Control.GainsFile;
+import frc.robot.Control.LeastSquares;
+import frc.robot.Diagnostics.ProfiledCommand;
+import frc.robot.Telemetry.Telemetry;
+
+/**
+ * Characterizes the elevator and writes Motion Magic settings for ElevatorSubsystem
+ *
+ * Runs four phases inside a soft limit window on the Mag encoder: a slow voltage ramp each way
+ * (quasistatic) and a voltage step each way. A phase ends when the carriage leaves the window
+ * moving outward, or when its voltage limit / time limit is reached. Every loop adds a sample to
+ *
+ *     voltage = kG + kS*sign(v) + kV*v + kA*a
+ *
+ * in native units (v in ticks per 100 ms, a in ticks per 100 ms per second). On success the fit
+ * and the derived kF, cruise velocity and acceleration are saved to elevator.properties and
+ * reloaded into the Talon.
+ *
+ * The carriage is never left at 0 V: every phase is offset by the current estimate of the voltage
+ * that holds it (the saved kG, then the fitted one once both ramps are done), and the reverse ramp
+ * starts just under the voltage where the forward ramp broke away, inside the band where friction
+ * holds the carriage. Between phases the carriage is brought to a stop at the hold voltage, with
+ * the fitted kV as damping once both ramps are done, before the next phase starts. The Talon's soft limits
+ * are set kSoftLimitMargin outside the window for the run, and the elevator is in brake mode.
+ * Interrupting the command (or disabling) holds the carriage and saves nothing.
+ *
+ * Doesn't assume which output sign raises the carriage, but the sensor phase must be right
+ * (positive output, positive velocity) for kF and the soft limits to be usable.
+ */
+public class CharacterizeElevator extends ProfiledCommand {
+
+    private static final double kNominalVoltage = 12;
+
+    // Soft limit window in ticks, defaults overridden by char.lowerLimit / char.upperLimit in elevator.properties
+    private static final double kDefaultLowerLimit = 1000;
+    private static final double kDefaultUpperLimit = 15000;
+    // Talon soft limits sit this far outside the window, so they only act if a phase overshoots
+    private static final int kSoftLimitMargin = 500;
+
+    private static final double kRampRate = 0.25; // V/s
+    private static final double kMaxRampVoltage = 4;
+    private static final double kStepVoltage = 3;
+    private static final double kMaxPhaseTime = 20;
+
+    // The reverse ramp starts this far under the forward breakaway voltage so it doesn't creep on
+    private static final double kReverseStartMargin = 0.25;
+    // Longest the carriage is given to stop between phases
+    private static final double kMaxSettleTime = 1.5;
+
+    // Samples slower than this (ticks per 100 ms) are mostly static friction and left out of the fit
+    private static final double kMinSpeed = 20;
+
+    // Share of the voltage left after kG and kS that the profile may use for cruising and for accelerating
+    private static final double kCruiseShare = 0.5;
+    private static final double kAccelShare = 0.35;
+
+    private enum Phase {
+        RAMP_FORWARD(kRampRate, 0, kMaxRampVoltage),
+        RAMP_REVERSE(-kRampRate, 0, kMaxRampVoltage),
+        STEP_FORWARD(0, kStepVoltage, kStepVoltage),
+        STEP_REVERSE(0, -kStepVoltage, kStepVoltage);
+
+        private final double rampRate, stepVoltage, maxVoltage;
+
+        Phase(double rampRate, double stepVoltage, double maxVoltage){
+            this.rampRate = rampRate;
+            this.stepVoltage = stepVoltage;
+            this.maxVoltage = maxVoltage;
+        }
+
+        // Voltage on top of the phase's starting offset
+        double voltage(double time){
+            return stepVoltage + rampRate * time;
+        }
+    }
+
+    private static final Phase[] phases = Phase.values();
+
+    private static final int kGHandle = Telemetry.register("Elevator char kG", 0.1, 0);
+    private static final int kSHandle = Telemetry.register("Elevator char kS", 0.1, 0);
+    private static final int kVHandle = Telemetry.register("Elevator char kV", 0.1, 0);
+    private static final int kAHandle = Telemetry.register("Elevator char kA", 0.1, 0);
+    private static final int rSquaredHandle = Telemetry.register("Elevator char R2", 0.1, 0);
+    private static final int phaseHandle = Telemetry.register("Elevator char phase", 0.1, 0);
+
+    //Fits voltage = kG + kS*sign(v) + kV*v + kA*a, keeping only running sums
+    private final LeastSquares fit = new LeastSquares(4);
+    private final double[] regressors = new double[4];
+
+    private double lowerLimit, upperLimit;
+
+    private int phase;
+    private double phaseStart, phaseOffset;
+    private double lastTimestamp, lastSpeed;
+    private boolean hasLastSpeed;
+
+    // Voltage that holds the carriage still, and where the forward ramp first moved it (NaN until then)
+    private double holdVoltage, breakawayVoltage;
+    // Fitted kV used to stop the carriage between phases, 0 until both ramps are done
+    private double dampingKv;
+
+    private boolean settling;
+    private double settleStart;
+
+    public CharacterizeElevator(){
+        requires(Robot.elevator);
+    }
+
+    protected void onInitialize(){
+        GainsFile gains = new GainsFile("elevator");
+        lowerLimit = gains.get("char.lowerLimit", kDefaultLowerLimit);
+        upperLimit = gains.get("char.upperLimit", kDefaultUpperLimit);
+
+        ElevatorSubsystem.setSoftLimits((int) lowerLimit - kSoftLimitMargin, (int) upperLimit + kSoftLimitMargin);
+
+        holdVoltage = ElevatorSubsystem.getGravityFeedforward() * kNominalVoltage;
+        breakawayVoltage = Double.NaN;
+        dampingKv = 0;
+
+        fit.reset();
+        phase = 0;
+        settling = false;
+        lastTimestamp = Timer.getFPGATimestamp();
+        hasLastSpeed = false;
+        startPhase(lastTimestamp);
+    }
+
+    private void startPhase(double timestamp){
+        phaseStart = timestamp;
+        if (phases[phase] == Phase.RAMP_REVERSE && !Double.isNaN(breakawayVoltage)) {
+            phaseOffset = breakawayVoltage - Math.signum(breakawayVoltage - holdVoltage) * kReverseStartMargin;
+        } else {
+            phaseOffset = holdVoltage;
+        }
+        System.out.println("Elevator characterization: " + phases[phase] + " from " + phaseOffset + " V");
+    }
+
+    protected void onExecute(){
+        double timestamp = Timer.getFPGATimestamp();
+        double dt = timestamp - lastTimestamp;
+        lastTimestamp = timestamp;
+
+        double position = ElevatorSubsystem.getEncoder();
+        double speed = ElevatorSubsystem.getVelocity();
+        addPoint(speed, ElevatorSubsystem.elevAVoltage(), dt);
+
+        if (settling) {
+            settle(timestamp, speed);
+            return;
+        }
+
+        Phase current = phases[phase];
+        double phaseTime = timestamp - phaseStart;
+        double ramp = current.voltage(phaseTime);
+        double voltage = phaseOffset + ramp;
+
+        if (current == Phase.RAMP_FORWARD && Double.isNaN(breakawayVoltage) && speed >= kMinSpeed) {
+            breakawayVoltage = voltage;
+        }
+
+        boolean outsideWindow = (position > upperLimit && speed > 0) || (position < lowerLimit && speed < 0);
+        if (outsideWindow || Math.abs(ramp) > current.maxVoltage || phaseTime > kMaxPhaseTime) {
+            settling = true;
+            settleStart = timestamp;
+            settle(timestamp, speed);
+            return;
+        }
+
+        ElevatorSubsystem.setOutput(voltage / kNominalVoltage);
+
+        if (fit.solve()) {
+            Telemetry.put(kGHandle, fit.getCoefficient(0));
+            Telemetry.put(kSHandle, fit.getCoefficient(1));
+            Telemetry.put(kVHandle, fit.getCoefficient(2));
+            Telemetry.put(kAHandle, fit.getCoefficient(3));
+            Telemetry.put(rSquaredHandle, fit.getRSquared());
+        }
+        Telemetry.put(phaseHandle, phase);
+    }
+
+    // Brings the carriage to a stop at the hold voltage, then starts the next phase
+    private void settle(double timestamp, double speed){
+        // Asks for zero speed through the fitted back EMF, clamped like the ramps
+        double damping = -dampingKv * speed;
+        double voltage = holdVoltage + Math.max(-kMaxRampVoltage, Math.min(kMaxRampVoltage, damping));
+        ElevatorSubsystem.setOutput(voltage / kNominalVoltage);
+        Telemetry.put(phaseHandle, phase + 0.5);
+
+        if (Math.abs(speed) >= kMinSpeed && timestamp - settleStart < kMaxSettleTime) {
+            return;
+        }
+
+        settling = false;
+        phase++;
+        // Both ramps give the fit motion both ways, so kG is separate from kS from here on
+        if (phase >= 2 && fit.solve()) {
+            holdVoltage = fit.getCoefficient(0);
+            dampingKv = Math.max(0, fit.getCoefficient(2));
+        }
+        if (phase < phases.length) {
+            startPhase(timestamp);
+        }
+    }
+
+    private void addPoint(double speed, double voltage, double dt){
+        if (!hasLastSpeed || dt <= 0) {
+            lastSpeed = speed;
+            hasLastSpeed = true;
+            return;
+        }
+        double acceleration = (speed - lastSpeed) / dt;
+        lastSpeed = speed;
+
+        if (Math.abs(speed) < kMinSpeed) {
+            return;
+        }
+
+        regressors[0] = 1;
+        regressors[1] = Math.signum(speed);
+        regressors[2] = speed;
+        regressors[3] = acceleration;
+        fit.add(regressors, voltage);
+    }
+
+    protected boolean isFinished(){
+        return phase >= phases.length;
+    }
+
+    protected void onEnd(){
+        ElevatorSubsystem.disableSoftLimits();
+        ElevatorSubsystem.hold();
+
+        if (phase < phases.length) {
+            System.out.println("Elevator characterization: interrupted in " + phases[phase] + ", gains not saved");
+            return;
+        }
+
+        if (!fit.solve()) {
+            System.out.println("Elevator characterization: not enough data to fit, gains not saved");
+            return;
+        }
+
+        double kG = fit.getCoefficient(0);
+        double kS = fit.getCoefficient(1);
+        double kV = fit.getCoefficient(2);
+        double kA = fit.getCoefficient(3);
+
+        System.out.println("Elevator kG: " + kG + " V, kS: " + kS + " V, kV: " + kV + " V/(tick/100ms), kA: " + kA
+                + " V/(tick/100ms/s), R^2: " + fit.getRSquared() + ", samples: " + fit.getCount());
+
+        if (kV <= 0 || kA <= 0) {
+            System.out.println("Elevator characterization: kV and kA must be positive, check the sensor phase; gains not saved");
+            return;
+        }
+
+        // Voltage the profile can use once gravity and friction are paid for
+        double available = kNominalVoltage - Math.abs(kG) - Math.abs(kS);
+        double cruiseVelocity = kCruiseShare * available / kV;
+        double acceleration = kAccelShare * available / kA;
+
+        GainsFile gains = new GainsFile("elevator");
+        gains.set("kG", kG / kNominalVoltage);
+        gains.set("kS", kS);
+        gains.set("kV", kV);
+        gains.set("kA", kA);
+        gains.set("kF", 1023 * kV / kNominalVoltage); // Talon kF is full output (1023) per tick/100ms
+        gains.set("cruiseVelocity", Math.floor(cruiseVelocity));
+        gains.set("acceleration", Math.floor(acceleration));
+        gains.save("Elevator feedforward from CharacterizeElevator");
+
+        ElevatorSubsystem.loadGains();
+
+        // Holds again so the new kG is applied
+        ElevatorSubsystem.hold();
+    }
+
+}
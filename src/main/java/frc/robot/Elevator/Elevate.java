@@ -1,32 +1,50 @@
 package frc.robot.Elevator;
 
-import edu.wpi.first.wpilibj.command.Command;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import frc.robot.Robot;
-import frc.robot.Drivetrain.Drive;
+import frc.robot.Control.InputShaper;
+import frc.robot.Diagnostics.ProfiledCommand;
 import frc.robot.OI.OI;
+import frc.robot.Telemetry.Telemetry;
 
-public class Elevate extends Command {
+public class Elevate extends ProfiledCommand {
 
-    public static double holdVoltage = 0;
+    private static final int kJoystickInput = Telemetry.register("Elevator Joystick Input");
+    private static final int kEncoder = Telemetry.register("Elevator encoder");
+    private static final int kOutputBottom = Telemetry.register("Elevator output bottom");
+
+    private final InputShaper elevateShaper = new InputShaper().deadband(0.05);
+
+    private boolean manual = false;
 
     public Elevate(){
         requires(Robot.elevator);
     }
 
-    protected void execute(){
+    protected void onInitialize(){
+        manual = false;
+
+        //Coming back from a preset move the Talon is still closed loop on its target, otherwise hold here
+        if (!ElevatorSubsystem.isClosedLoop()) {
+            ElevatorSubsystem.hold();
+        }
+    }
+
+    protected void onExecute(){
         double elevateAxis = OI.elevateValue(); //sets elevateAxis to joystick input
-        elevateAxis = Drive.deadbandX(elevateAxis, 0.05);
+        elevateAxis = elevateShaper.calculate(elevateAxis);
 
-        SmartDashboard.putNumber("Elevator Joystick Input", elevateAxis);
-        SmartDashboard.putNumber("Elevator encoder", ElevatorSubsystem.getEncoder());
-        SmartDashboard.putNumber("Elevator output bottom", ElevatorSubsystem.elevAVoltage());
+        Telemetry.put(kJoystickInput, elevateAxis);
+        Telemetry.put(kEncoder, ElevatorSubsystem.getEncoder());
+        Telemetry.put(kOutputBottom, ElevatorSubsystem.elevAVoltage());
       //  SmartDashboard.putNumber("Elevator output top", ElevatorSubsystem.elevBVoltage());
 
         if(elevateAxis != 0){
+            manual = true;
             ElevatorSubsystem.elevate(elevateAxis);
-        } else {
-            ElevatorSubsystem.elevate(holdVoltage);
+        } else if (manual) {
+            //Stick released: hold where the operator left it instead of coasting on the feedforward
+            manual = false;
+            ElevatorSubsystem.hold();
         }
     }
 
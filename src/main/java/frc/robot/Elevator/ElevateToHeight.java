@@ -0,0 +1,97 @@
+package frc.robot.Elevator;
+
+import edu.wpi.first.wpilibj.Timer;
+import frc.robot.Robot;
+import frc.robot.Diagnostics.ProfiledCommand;
+import frc.robot.Elevator.ElevatorSubsystem.ElevatorHeight;
+import frc.robot.OI.OI;
+import frc.robot.Telemetry.Telemetry;
+
+/**
+ * Moves the elevator to a preset with Motion Magic and records how long each preset takes
+ *
+ * Finishes once the carriage has settled on the target, or as soon as the operator moves the
+ * elevator stick, in which case the default Elevate command takes over from wherever it is.
+ */
+public class ElevateToHeight extends ProfiledCommand {
+
+    private static final double kOverrideDeadband = 0.05;
+
+    private static final ElevatorHeight[] heights = ElevatorHeight.values();
+
+    // Completed move statistics per preset, indexed by ordinal
+    private static final int[] moves = new int[heights.length];
+    private static final double[] totalTime = new double[heights.length];
+    private static final double[] minTime = new double[heights.length];
+    private static final double[] maxTime = new double[heights.length];
+    private static final int[] lastTimeSignals = new int[heights.length];
+    private static final int[] meanTimeSignals = new int[heights.length];
+
+    static {
+        for (ElevatorHeight height : heights) {
+            int i = height.ordinal();
+            minTime[i] = Double.POSITIVE_INFINITY;
+            lastTimeSignals[i] = Telemetry.register("Elevator " + height + " last s", 0.5, 0);
+            meanTimeSignals[i] = Telemetry.register("Elevator " + height + " mean s", 0.5, 0);
+        }
+    }
+
+    private final ElevatorHeight height;
+
+    private double startTime;
+    private int startPosition;
+    private boolean arrived;
+
+    public ElevateToHeight(ElevatorHeight height){
+        requires(Robot.elevator);
+        this.height = height;
+    }
+
+    protected void onInitialize(){
+        startTime = Timer.getFPGATimestamp();
+        startPosition = ElevatorSubsystem.getEncoder();
+        arrived = false;
+
+        ElevatorSubsystem.elevate(height);
+    }
+
+    @Override
+    protected boolean isFinished(){
+        arrived = ElevatorSubsystem.isAtTarget();
+        return arrived || Math.abs(OI.elevateValue()) > kOverrideDeadband;
+    }
+
+    //Also runs when interrupted by another preset, which doesn't count as a move
+    protected void onEnd(){
+        if (arrived) {
+            record(Timer.getFPGATimestamp() - startTime);
+        }
+    }
+
+    private void record(double time){
+        int i = height.ordinal();
+        moves[i]++;
+        totalTime[i] += time;
+        minTime[i] = Math.min(minTime[i], time);
+        maxTime[i] = Math.max(maxTime[i], time);
+
+        Telemetry.put(lastTimeSignals[i], time);
+        Telemetry.put(meanTimeSignals[i], totalTime[i] / moves[i]);
+        System.out.println(String.format("Elevator reached %s from %d in %.2f s", height, startPosition, time));
+    }
+
+    /**
+     * Prints the timing statistics for every preset that has been reached at least once
+     */
+    public static void dump(){
+        for (ElevatorHeight height : heights) {
+            int i = height.ordinal();
+            if (moves[i] == 0) {
+                continue;
+            }
+            System.out.println(String.format("Elevator %s: %d moves, mean %.2f s, min %.2f s, max %.2f s",
+                    height, moves[i], totalTime[i] / moves[i], minTime[i], maxTime[i]));
+        }
+    }
+
+}
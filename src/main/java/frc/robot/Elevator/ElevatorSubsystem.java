@@ -1,12 +1,15 @@
 package frc.robot.Elevator;
 
 import com.ctre.phoenix.motorcontrol.ControlMode;
+import com.ctre.phoenix.motorcontrol.DemandType;
 import com.ctre.phoenix.motorcontrol.FeedbackDevice;
+import com.ctre.phoenix.motorcontrol.NeutralMode;
 import com.ctre.phoenix.motorcontrol.StatusFrameEnhanced;
-import com.ctre.phoenix.motorcontrol.can.TalonSRX;
-import com.ctre.phoenix.motorcontrol.can.VictorSPX;
 
 import edu.wpi.first.wpilibj.command.Subsystem;
+import frc.robot.Control.GainsFile;
+import frc.robot.Hardware.ShadowTalonSRX;
+import frc.robot.Hardware.ShadowVictorSPX;
 
 public class ElevatorSubsystem extends Subsystem {
     
@@ -16,24 +19,46 @@ public class ElevatorSubsystem extends Subsystem {
         return instance;
     }
 
-    private static TalonSRX elevatorMotorA = new TalonSRX(5);
-    private static VictorSPX elevatorMotorB = new VictorSPX(2);
+    private static ShadowTalonSRX elevatorMotorA = new ShadowTalonSRX(5);
+    private static ShadowVictorSPX elevatorMotorB = new ShadowVictorSPX(2);
 
     private static final int kTimeout = 10;
     private static final int kPIDIndex = 0;
 
-    private static final int kCruiseVelo = 500;
-    private static final int kAccel = 1000;
+    //Within this many ticks and below this speed (ticks per 100 ms) a Motion Magic move counts as done
+    public static final int kTargetTolerance = 200;
+    private static final int kSettledVelocity = 50;
 
-    private static final int kP = 0, kI = 0, kD = 0;
-    private static final double kF = 0.3808637379;
+    //Defaults, overridden by /home/lvuser/gains/elevator.properties
+    private static int kCruiseVelo = 500;
+    private static int kAccel = 1000;
+
+    private static double kP = 0, kI = 0, kD = 0;
+    private static double kF = 0.3808637379;
+
+    //Percent output (as sent to the Talon, sign included) that holds the carriage still.
+    //Added to every command as arbitrary feedforward so neither the PID nor the stick has to carry the weight
+    private static double kG = 0;
+
+    //Last closed loop target, only meaningful while closedLoop is set
+    private static int target = 0;
+    private static boolean closedLoop = false;
 
     private ElevatorSubsystem() {
+        configure();
+    }
+
+    // Everything the controllers lose when they reset; only values that differ from the shadows go out
+    private static void configure() {
         elevatorMotorB.follow(elevatorMotorA);
 
         elevatorMotorA.setInverted(true);
         elevatorMotorB.setInverted(true);
 
+        //Slows the carriage down whenever the output goes neutral instead of letting it coast or drop
+        elevatorMotorA.setNeutralMode(NeutralMode.Brake);
+        elevatorMotorB.setNeutralMode(NeutralMode.Brake);
+
         //Current and voltage settings
         elevatorMotorA.configPeakCurrentLimit(40, kTimeout);
         elevatorMotorA.configPeakCurrentDuration(500, kTimeout);
@@ -44,10 +69,7 @@ public class ElevatorSubsystem extends Subsystem {
 
         //PID Gains and settings
         elevatorMotorA.selectProfileSlot(0, kPIDIndex);
-        elevatorMotorA.config_kF(kPIDIndex, kF, kTimeout);
-        elevatorMotorA.config_kP(kPIDIndex, kP, kTimeout);
-        elevatorMotorA.config_kI(kPIDIndex, kI, kTimeout);
-        elevatorMotorA.config_kD(kPIDIndex, kD, kTimeout);
+        loadGains();
 
        /* elevatorMotorB.selectProfileSlot(0, kPIDIndex);
         elevatorMotorB.config_kF(kPIDIndex, kF, kTimeout);
@@ -55,9 +77,6 @@ public class ElevatorSubsystem extends Subsystem {
         elevatorMotorB.config_kI(kPIDIndex, kI, kTimeout);
         elevatorMotorB.config_kD(kPIDIndex, kD, kTimeout);
         */
-        elevatorMotorA.configMotionCruiseVelocity(kCruiseVelo, kTimeout);
-        elevatorMotorA.configMotionAcceleration(kAccel, kTimeout);
-
        //elevatorMotorB.configMotionCruiseVelocity(kCruiseVelo, kTimeout);
        // elevatorMotorB.configMotionAcceleration(kAccel, kTimeout);
 
@@ -67,6 +86,45 @@ public class ElevatorSubsystem extends Subsystem {
         
     }
 
+    /**
+     * Sends the configuration again if either controller has reset since the last call, see
+     * DrivetrainSubsystem.checkResets()
+     */
+    public static void checkResets() {
+        // Both flags have to be read, they clear when read
+        boolean reset = elevatorMotorA.checkReset() | elevatorMotorB.checkReset();
+        if (reset) {
+            System.out.println("Elevator controller reset, sending its configuration again");
+            configure();
+        }
+    }
+
+    /**
+     * Loads gains, Motion Magic limits and preset heights from /home/lvuser/gains/elevator.properties,
+     * keeping the defaults above for anything that isn't in the file, and sends them to the Talon
+     */
+    public static void loadGains(){
+        GainsFile gains = new GainsFile("elevator");
+        kP = gains.get("kP", kP);
+        kI = gains.get("kI", kI);
+        kD = gains.get("kD", kD);
+        kF = gains.get("kF", kF);
+        kG = gains.get("kG", kG);
+        kCruiseVelo = (int) gains.get("cruiseVelocity", kCruiseVelo);
+        kAccel = (int) gains.get("acceleration", kAccel);
+
+        for (ElevatorHeight height : ElevatorHeight.values()) {
+            height.encoderTarget = (int) gains.get(height.key(), height.encoderTarget);
+        }
+
+        elevatorMotorA.config_kF(kPIDIndex, kF, kTimeout);
+        elevatorMotorA.config_kP(kPIDIndex, kP, kTimeout);
+        elevatorMotorA.config_kI(kPIDIndex, kI, kTimeout);
+        elevatorMotorA.config_kD(kPIDIndex, kD, kTimeout);
+        elevatorMotorA.configMotionCruiseVelocity(kCruiseVelo, kTimeout);
+        elevatorMotorA.configMotionAcceleration(kAccel, kTimeout);
+    }
+
     public static double elevAVoltage(){
         return elevatorMotorA.getMotorOutputVoltage();
     }
@@ -74,16 +132,68 @@ public class ElevatorSubsystem extends Subsystem {
         return elevatorMotorB.getMotorOutputVoltage();
     }
 
+    //Manual control; the gravity feedforward is added on top so a centred stick doesn't drop the carriage
     public static void elevate(double speed){
-        elevatorMotorA.set(ControlMode.PercentOutput, speed);
+        closedLoop = false;
+        elevatorMotorA.set(ControlMode.PercentOutput, speed, DemandType.ArbitraryFeedForward, kG);
+    }
+
+    //Raw percent output with no gravity feedforward, for characterization
+    static void setOutput(double percent){
+        closedLoop = false;
+        elevatorMotorA.set(ControlMode.PercentOutput, percent);
+    }
+
+    //Gravity feedforward as a percent output, where characterization starts its ramps
+    static double getGravityFeedforward(){
+        return kG;
+    }
+
+    //Stops the Talon driving the carriage past these ticks, a backstop while characterizing
+    static void setSoftLimits(int reverse, int forward){
+        elevatorMotorA.configReverseSoftLimitThreshold(reverse, kTimeout);
+        elevatorMotorA.configForwardSoftLimitThreshold(forward, kTimeout);
+        elevatorMotorA.configReverseSoftLimitEnable(true, kTimeout);
+        elevatorMotorA.configForwardSoftLimitEnable(true, kTimeout);
+    }
+
+    static void disableSoftLimits(){
+        elevatorMotorA.configReverseSoftLimitEnable(false, kTimeout);
+        elevatorMotorA.configForwardSoftLimitEnable(false, kTimeout);
     }
 
     public static void elevate(ElevatorHeight height){
-        elevatorMotorA.set(ControlMode.MotionMagic, height.encoderTarget);
+        elevateToTick(height.encoderTarget);
     }
 
+    /**
+     * Starts a Motion Magic move; the Talon plans it from wherever the carriage is, so this can be
+     * called mid-move or straight after manual control
+     */
     public static void elevateToTick(int ticks){
-        elevatorMotorA.set(ControlMode.MotionMagic, ticks);
+        target = ticks;
+        closedLoop = true;
+        elevatorMotorA.set(ControlMode.MotionMagic, ticks, DemandType.ArbitraryFeedForward, kG);
+    }
+
+    //Holds the carriage where it is, used when the operator lets go of the stick
+    public static void hold(){
+        elevateToTick(getEncoder());
+    }
+
+    public static boolean isClosedLoop(){
+        return closedLoop;
+    }
+
+    public static int getTarget(){
+        return target;
+    }
+
+    //True once a closed loop move has arrived and stopped
+    public static boolean isAtTarget(){
+        return closedLoop
+                && Math.abs(getEncoder() - target) <= kTargetTolerance
+                && Math.abs(getVelocity()) <= kSettledVelocity;
     }
 
     public static void resetEncoders(){
@@ -94,6 +204,12 @@ public class ElevatorSubsystem extends Subsystem {
         return elevatorMotorA.getSelectedSensorPosition(kPIDIndex);
     }
 
+    //Ticks per 100 ms
+    public static int getVelocity(){
+        return elevatorMotorA.getSelectedSensorVelocity(kPIDIndex);
+    }
+
+    //Targets are still unmeasured, set preset.<name> in elevator.properties to the tick count for each
     public enum ElevatorHeight {
         SCALE (0),
         SWITCH (0),
@@ -105,10 +221,14 @@ public class ElevatorSubsystem extends Subsystem {
             this.encoderTarget =  encoderTarget;
         }
 
-        private int getValue() {
+        public int getValue() {
             return encoderTarget;
         }
 
+        private String key() {
+            return "preset." + name().toLowerCase();
+        }
+
     }
 
     @Override
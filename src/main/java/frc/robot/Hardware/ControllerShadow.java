@@ -0,0 +1,273 @@
+package frc.robot.Hardware;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.ctre.phoenix.ErrorCode;
+import com.ctre.phoenix.motorcontrol.ControlMode;
+import com.ctre.phoenix.motorcontrol.DemandType;
+import com.ctre.phoenix.motorcontrol.can.BaseMotorController;
+
+import frc.robot.Telemetry.Telemetry;
+
+/**
+ * Shadow copy of everything that has been sent to one CTRE motor controller
+ *
+ * ShadowTalonSRX and ShadowVictorSPX route every config or control call through it, handing in
+ * the superclass method to call, and it only sends a CAN frame when the value differs from what
+ * the controller already has. Configs that come back with an error are forgotten, so the next
+ * call retries them instead of being suppressed. The wrappers only choose the shadow key, so the
+ * change detection, error handling and reset handling live here once for both.
+ *
+ * The wrappers create their superclass method references once per controller, so going through
+ * them doesn't allocate.
+ */
+public class ControllerShadow {
+
+    // Keys for single valued settings; per slot gains start at kSlotBase
+    static final int kOpenloopRamp = 0;
+    static final int kClosedloopRamp = 1;
+    static final int kNeutralMode = 2;
+    static final int kInverted = 3;
+    static final int kSensorPhase = 4;
+    static final int kVoltageCompSaturation = 5;
+    static final int kVoltageCompEnable = 6;
+    static final int kNeutralDeadband = 7;
+    static final int kFeedbackSensor = 8;
+    static final int kProfileSlot = 9;
+    static final int kCruiseVelocity = 10;
+    static final int kAcceleration = 11;
+    static final int kPeakCurrentLimit = 12;
+    static final int kPeakCurrentDuration = 13;
+    static final int kContinuousCurrentLimit = 14;
+    static final int kCurrentLimitEnable = 15;
+    static final int kPeakOutputForward = 16;
+    static final int kPeakOutputReverse = 17;
+
+    static final int kSlotBase = 18;
+    static final int kP = 0, kI = 1, kD = 2, kF = 3;
+    private static final int kSlots = 4, kGains = 4;
+
+    private static final AtomicLong totalSent = new AtomicLong(), totalSuppressed = new AtomicLong();
+
+    private static final int kSentFrames = Telemetry.register("CAN frames sent", 1.0, 0);
+    private static final int kSuppressedFrames = Telemetry.register("CAN frames suppressed", 1.0, 0);
+
+    // NaN means unknown, so the next call always goes out
+    private final double[] values = new double[kSlotBase + kSlots * kGains];
+    private final HashMap<Object, Integer> statusFramePeriods = new HashMap<>();
+
+    private ControlMode mode;
+    private double demand0, demand1;
+    private DemandType demandType;
+
+    private long sent = 0, suppressed = 0;
+
+    ControllerShadow() {
+        invalidate();
+    }
+
+    /**
+     * Forgets every shadowed value, e.g. after the controller has reset and lost its configuration
+     */
+    public void invalidate() {
+        Arrays.fill(values, Double.NaN);
+        statusFramePeriods.clear();
+        mode = null;
+    }
+
+    /**
+     * Invalidates the shadow if the controller has reset since the last call (the flag clears
+     * when read), so the owner's next configuration goes out again instead of being suppressed
+     *
+     * @return true if it had reset
+     */
+    boolean checkReset(BaseMotorController controller) {
+        if (controller.hasResetOccurred()) {
+            invalidate();
+            return true;
+        }
+        return false;
+    }
+
+    // Superclass calls handed in by the wrappers
+    interface Setting<T> {
+        void send(T value);
+    }
+
+    interface Config {
+        ErrorCode send(double value, int timeoutMs);
+    }
+
+    interface IntConfig {
+        ErrorCode send(int value, int timeoutMs);
+    }
+
+    interface ValueConfig<T> {
+        ErrorCode send(T value, int timeoutMs);
+    }
+
+    interface SlotConfig {
+        ErrorCode send(int slot, double value, int timeoutMs);
+    }
+
+    interface StatusFrameConfig<F> {
+        ErrorCode send(F frame, int periodMs, int timeoutMs);
+    }
+
+    interface Control {
+        void send(ControlMode mode, double demand0, DemandType demandType, double demand1);
+    }
+
+    // Setter without a result code; key is compared on shadowValue, value goes to the controller
+    <T> void set(int key, double shadowValue, T value, Setting<T> call) {
+        if (changed(key, shadowValue)) {
+            call.send(value);
+            sent(key, shadowValue);
+        }
+    }
+
+    ErrorCode config(int key, double value, int timeoutMs, Config call) {
+        if (!changed(key, value)) {
+            return ErrorCode.OK;
+        }
+        return sent(key, value, call.send(value, timeoutMs));
+    }
+
+    ErrorCode config(int key, int value, int timeoutMs, IntConfig call) {
+        if (!changed(key, value)) {
+            return ErrorCode.OK;
+        }
+        return sent(key, value, call.send(value, timeoutMs));
+    }
+
+    // Config whose value isn't a number; key is compared on shadowValue, value goes to the controller
+    <T> ErrorCode config(int key, double shadowValue, T value, int timeoutMs, ValueConfig<T> call) {
+        if (!changed(key, shadowValue)) {
+            return ErrorCode.OK;
+        }
+        return sent(key, shadowValue, call.send(value, timeoutMs));
+    }
+
+    ErrorCode slotConfig(int slot, int gain, double value, int timeoutMs, SlotConfig call) {
+        int key = slotKey(slot, gain);
+        if (!changed(key, value)) {
+            return ErrorCode.OK;
+        }
+        return sent(key, value, call.send(slot, value, timeoutMs));
+    }
+
+    <F> ErrorCode statusFrame(F frame, int periodMs, int timeoutMs, StatusFrameConfig<F> call) {
+        if (!statusFrameChanged(frame, periodMs)) {
+            return ErrorCode.OK;
+        }
+        return statusFrameSent(frame, periodMs, call.send(frame, periodMs, timeoutMs));
+    }
+
+    void control(ControlMode newMode, double newDemand0, DemandType newDemandType, double newDemand1, Control call) {
+        if (controlChanged(newMode, newDemand0, newDemandType, newDemand1)) {
+            call.send(newMode, newDemand0, newDemandType, newDemand1);
+        }
+    }
+
+    private static int slotKey(int slot, int gain) {
+        return kSlotBase + slot * kGains + gain;
+    }
+
+    /**
+     * @return true if the value is new and has to be sent
+     */
+    private boolean changed(int key, double value) {
+        if (values[key] == value) {
+            suppress();
+            return false;
+        }
+        return true;
+    }
+
+    // Records a value that was sent without a result code
+    private void sent(int key, double value) {
+        values[key] = value;
+        send();
+    }
+
+    // Records a config that was sent, keeping it only if the controller accepted it
+    private ErrorCode sent(int key, double value, ErrorCode result) {
+        values[key] = result == ErrorCode.OK ? value : Double.NaN;
+        send();
+        return result;
+    }
+
+    private boolean statusFrameChanged(Object frame, int period) {
+        Integer current = statusFramePeriods.get(frame);
+        if (current != null && current == period) {
+            suppress();
+            return false;
+        }
+        return true;
+    }
+
+    private ErrorCode statusFrameSent(Object frame, int period, ErrorCode result) {
+        if (result == ErrorCode.OK) {
+            statusFramePeriods.put(frame, period);
+        } else {
+            statusFramePeriods.remove(frame);
+        }
+        send();
+        return result;
+    }
+
+    private boolean controlChanged(ControlMode newMode, double newDemand0, DemandType newDemandType, double newDemand1) {
+        if (newMode == mode && newDemand0 == demand0 && newDemandType == demandType && newDemand1 == demand1) {
+            suppress();
+            return false;
+        }
+        mode = newMode;
+        demand0 = newDemand0;
+        demandType = newDemandType;
+        demand1 = newDemand1;
+        send();
+        return true;
+    }
+
+    // follow() and neutralOutput() change the control frame behind the shadow's back
+    void controlUnknown() {
+        mode = null;
+    }
+
+    private void send() {
+        sent++;
+        totalSent.incrementAndGet();
+    }
+
+    private void suppress() {
+        suppressed++;
+        totalSuppressed.incrementAndGet();
+    }
+
+    public long getSentFrames() {
+        return sent;
+    }
+
+    public long getSuppressedFrames() {
+        return suppressed;
+    }
+
+    public static long getTotalSentFrames() {
+        return totalSent.get();
+    }
+
+    public static long getTotalSuppressedFrames() {
+        return totalSuppressed.get();
+    }
+
+    /**
+     * Publishes the frame counters for every shadowed controller, call once per loop
+     */
+    public static void publish() {
+        Telemetry.put(kSentFrames, totalSent.get());
+        Telemetry.put(kSuppressedFrames, totalSuppressed.get());
+    }
+
+}
@@ -0,0 +1,12 @@
+package frc.robot.Hardware;
+
+/**
+ * Heading source for the drivetrain, the navX on the robot (gyro::getAngle) or
+ * DrivetrainPlant::getGyroAngle in the simulator
+ */
+public interface DriveGyro {
+
+    // Degrees, clockwise positive like the navX
+    double getAngle();
+
+}
@@ -0,0 +1,37 @@
+package frc.robot.Hardware;
+
+import com.ctre.phoenix.motorcontrol.ControlMode;
+import com.ctre.phoenix.motorcontrol.NeutralMode;
+
+/**
+ * One side of the drivetrain as DrivetrainSubsystem sees it: a leader with its encoder and any
+ * followers. TalonDriveMotor is the robot, frc.robot.Simulation.SimDriveMotor is the simulator.
+ */
+public interface DriveMotor {
+
+    void set(ControlMode mode, double value);
+
+    // Closed loop velocity in ticks per 100 ms, with an arbitrary feedforward in percent output on top
+    void setVelocity(double ticksPer100ms, double arbitraryFeedForward);
+
+    // Gain slot the closed loop modes use
+    void selectProfileSlot(int slot);
+
+    // Velocity loop gains in Talon units, full output (1023) per tick per 100 ms of target (kF) or error (kP)
+    void configVelocityGains(int slot, double kF, double kP);
+
+    void setOpenLoopRamp(double secondsFromNeutralToFull);
+
+    void setNeutralMode(NeutralMode mode);
+
+    // Encoder position in ticks
+    int getPosition();
+
+    // Encoder velocity in ticks per 100 ms
+    int getVelocity();
+
+    double getVoltage();
+
+    double getCurrent();
+
+}
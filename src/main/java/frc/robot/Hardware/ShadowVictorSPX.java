@@ -0,0 +1,182 @@
+package frc.robot.Hardware;
+
+import com.ctre.phoenix.ErrorCode;
+import com.ctre.phoenix.motorcontrol.ControlMode;
+import com.ctre.phoenix.motorcontrol.DemandType;
+import com.ctre.phoenix.motorcontrol.FeedbackDevice;
+import com.ctre.phoenix.motorcontrol.IMotorController;
+import com.ctre.phoenix.motorcontrol.NeutralMode;
+import com.ctre.phoenix.motorcontrol.StatusFrame;
+import com.ctre.phoenix.motorcontrol.can.VictorSPX;
+
+/**
+ * VictorSPX that only sends config, neutral mode and control frames when the value changes, the
+ * same way as ShadowTalonSRX
+ */
+public class ShadowVictorSPX extends VictorSPX {
+
+    private final ControllerShadow shadow = new ControllerShadow();
+
+    // Superclass calls for the shadow, created once so the overrides below don't allocate
+    private final ControllerShadow.Control control = super::set;
+    private final ControllerShadow.Setting<NeutralMode> neutralMode = super::setNeutralMode;
+    private final ControllerShadow.Setting<Boolean> inverted = super::setInverted;
+    private final ControllerShadow.Setting<Boolean> sensorPhase = super::setSensorPhase;
+    private final ControllerShadow.Setting<Boolean> voltageCompEnable = super::enableVoltageCompensation;
+    private final ControllerShadow.Setting<Integer> profileSlot = slot -> super.selectProfileSlot(slot, 0);
+    private final ControllerShadow.ValueConfig<FeedbackDevice> feedbackSensor =
+            (device, timeoutMs) -> super.configSelectedFeedbackSensor(device, 0, timeoutMs);
+    private final ControllerShadow.Config openloopRamp = super::configOpenloopRamp;
+    private final ControllerShadow.Config closedloopRamp = super::configClosedloopRamp;
+    private final ControllerShadow.Config peakOutputForward = super::configPeakOutputForward;
+    private final ControllerShadow.Config peakOutputReverse = super::configPeakOutputReverse;
+    private final ControllerShadow.Config voltageCompSaturation = super::configVoltageCompSaturation;
+    private final ControllerShadow.Config neutralDeadband = super::configNeutralDeadband;
+    private final ControllerShadow.SlotConfig kP = super::config_kP;
+    private final ControllerShadow.SlotConfig kI = super::config_kI;
+    private final ControllerShadow.SlotConfig kD = super::config_kD;
+    private final ControllerShadow.SlotConfig kF = super::config_kF;
+    private final ControllerShadow.IntConfig cruiseVelocity = super::configMotionCruiseVelocity;
+    private final ControllerShadow.IntConfig acceleration = super::configMotionAcceleration;
+    private final ControllerShadow.StatusFrameConfig<StatusFrame> statusFrame = super::setStatusFramePeriod;
+
+    public ShadowVictorSPX(int deviceNumber) {
+        super(deviceNumber);
+    }
+
+    public ControllerShadow getShadow() {
+        return shadow;
+    }
+
+    // See ControllerShadow.checkReset()
+    public boolean checkReset() {
+        return shadow.checkReset(this);
+    }
+
+    @Override
+    public void set(ControlMode mode, double value) {
+        // Phoenix sends the two argument set() as a Neutral demand, so both share one shadow
+        set(mode, value, DemandType.Neutral, 0);
+    }
+
+    @Override
+    public void set(ControlMode mode, double demand0, DemandType demandType, double demand1) {
+        shadow.control(mode, demand0, demandType, demand1, control);
+    }
+
+    @Override
+    public void neutralOutput() {
+        shadow.controlUnknown();
+        super.neutralOutput();
+    }
+
+    @Override
+    public void follow(IMotorController master) {
+        shadow.controlUnknown();
+        super.follow(master);
+    }
+
+    @Override
+    public void setNeutralMode(NeutralMode mode) {
+        shadow.set(ControllerShadow.kNeutralMode, mode.ordinal(), mode, neutralMode);
+    }
+
+    @Override
+    public void setInverted(boolean invert) {
+        shadow.set(ControllerShadow.kInverted, invert ? 1 : 0, invert, inverted);
+    }
+
+    @Override
+    public void setSensorPhase(boolean phase) {
+        shadow.set(ControllerShadow.kSensorPhase, phase ? 1 : 0, phase, sensorPhase);
+    }
+
+    @Override
+    public void enableVoltageCompensation(boolean enable) {
+        shadow.set(ControllerShadow.kVoltageCompEnable, enable ? 1 : 0, enable, voltageCompEnable);
+    }
+
+    @Override
+    public ErrorCode configOpenloopRamp(double secondsFromNeutralToFull, int timeoutMs) {
+        return shadow.config(ControllerShadow.kOpenloopRamp, secondsFromNeutralToFull, timeoutMs, openloopRamp);
+    }
+
+    @Override
+    public ErrorCode configClosedloopRamp(double secondsFromNeutralToFull, int timeoutMs) {
+        return shadow.config(ControllerShadow.kClosedloopRamp, secondsFromNeutralToFull, timeoutMs, closedloopRamp);
+    }
+
+    @Override
+    public ErrorCode configPeakOutputForward(double percentOut, int timeoutMs) {
+        return shadow.config(ControllerShadow.kPeakOutputForward, percentOut, timeoutMs, peakOutputForward);
+    }
+
+    @Override
+    public ErrorCode configPeakOutputReverse(double percentOut, int timeoutMs) {
+        return shadow.config(ControllerShadow.kPeakOutputReverse, percentOut, timeoutMs, peakOutputReverse);
+    }
+
+    @Override
+    public ErrorCode configVoltageCompSaturation(double voltage, int timeoutMs) {
+        return shadow.config(ControllerShadow.kVoltageCompSaturation, voltage, timeoutMs, voltageCompSaturation);
+    }
+
+    @Override
+    public ErrorCode configNeutralDeadband(double percentDeadband, int timeoutMs) {
+        return shadow.config(ControllerShadow.kNeutralDeadband, percentDeadband, timeoutMs, neutralDeadband);
+    }
+
+    @Override
+    public ErrorCode configSelectedFeedbackSensor(FeedbackDevice device, int pidIdx, int timeoutMs) {
+        // Only the primary PID loop is shadowed, the auxiliary one isn't used on this robot
+        if (pidIdx != 0) {
+            return super.configSelectedFeedbackSensor(device, pidIdx, timeoutMs);
+        }
+        return shadow.config(ControllerShadow.kFeedbackSensor, device.ordinal(), device, timeoutMs, feedbackSensor);
+    }
+
+    @Override
+    public void selectProfileSlot(int slotIdx, int pidIdx) {
+        if (pidIdx != 0) {
+            super.selectProfileSlot(slotIdx, pidIdx);
+        } else {
+            shadow.set(ControllerShadow.kProfileSlot, slotIdx, slotIdx, profileSlot);
+        }
+    }
+
+    @Override
+    public ErrorCode config_kP(int slotIdx, double value, int timeoutMs) {
+        return shadow.slotConfig(slotIdx, ControllerShadow.kP, value, timeoutMs, kP);
+    }
+
+    @Override
+    public ErrorCode config_kI(int slotIdx, double value, int timeoutMs) {
+        return shadow.slotConfig(slotIdx, ControllerShadow.kI, value, timeoutMs, kI);
+    }
+
+    @Override
+    public ErrorCode config_kD(int slotIdx, double value, int timeoutMs) {
+        return shadow.slotConfig(slotIdx, ControllerShadow.kD, value, timeoutMs, kD);
+    }
+
+    @Override
+    public ErrorCode config_kF(int slotIdx, double value, int timeoutMs) {
+        return shadow.slotConfig(slotIdx, ControllerShadow.kF, value, timeoutMs, kF);
+    }
+
+    @Override
+    public ErrorCode configMotionCruiseVelocity(int sensorUnitsPer100ms, int timeoutMs) {
+        return shadow.config(ControllerShadow.kCruiseVelocity, sensorUnitsPer100ms, timeoutMs, cruiseVelocity);
+    }
+
+    @Override
+    public ErrorCode configMotionAcceleration(int sensorUnitsPer100msPerSec, int timeoutMs) {
+        return shadow.config(ControllerShadow.kAcceleration, sensorUnitsPer100msPerSec, timeoutMs, acceleration);
+    }
+
+    @Override
+    public ErrorCode setStatusFramePeriod(StatusFrame frame, int periodMs, int timeoutMs) {
+        return shadow.statusFrame(frame, periodMs, timeoutMs, statusFrame);
+    }
+
+}
@@ -0,0 +1,79 @@
+package frc.robot.Hardware;
+
+import com.ctre.phoenix.motorcontrol.ControlMode;
+import com.ctre.phoenix.motorcontrol.DemandType;
+import com.ctre.phoenix.motorcontrol.NeutralMode;
+
+/**
+ * DriveMotor backed by a leader Talon with its followers, configuration stays in DrivetrainSubsystem
+ */
+public class TalonDriveMotor implements DriveMotor {
+
+    private static final int kPIDIndex = 0;
+
+    private final ShadowTalonSRX leader;
+    private final ShadowTalonSRX[] all;
+
+    public TalonDriveMotor(ShadowTalonSRX leader, ShadowTalonSRX... followers) {
+        this.leader = leader;
+        this.all = new ShadowTalonSRX[followers.length + 1];
+        all[0] = leader;
+        System.arraycopy(followers, 0, all, 1, followers.length);
+    }
+
+    @Override
+    public void set(ControlMode mode, double value) {
+        leader.set(mode, value);
+    }
+
+    @Override
+    public void setVelocity(double ticksPer100ms, double arbitraryFeedForward) {
+        leader.set(ControlMode.Velocity, ticksPer100ms, DemandType.ArbitraryFeedForward, arbitraryFeedForward);
+    }
+
+    @Override
+    public void selectProfileSlot(int slot) {
+        leader.selectProfileSlot(slot, kPIDIndex);
+    }
+
+    @Override
+    public void configVelocityGains(int slot, double kF, double kP) {
+        leader.config_kF(slot, kF, 0);
+        leader.config_kP(slot, kP, 0);
+        leader.config_kI(slot, 0, 0);
+        leader.config_kD(slot, 0, 0);
+    }
+
+    @Override
+    public void setOpenLoopRamp(double secondsFromNeutralToFull) {
+        leader.configOpenloopRamp(secondsFromNeutralToFull, 0);
+    }
+
+    @Override
+    public void setNeutralMode(NeutralMode mode) {
+        for (ShadowTalonSRX motor : all) {
+            motor.setNeutralMode(mode);
+        }
+    }
+
+    @Override
+    public int getPosition() {
+        return leader.getSelectedSensorPosition(kPIDIndex);
+    }
+
+    @Override
+    public int getVelocity() {
+        return leader.getSelectedSensorVelocity(kPIDIndex);
+    }
+
+    @Override
+    public double getVoltage() {
+        return leader.getMotorOutputVoltage();
+    }
+
+    @Override
+    public double getCurrent() {
+        return leader.getOutputCurrent();
+    }
+
+}
@@ -1,15 +1,15 @@
 package frc.robot.Intake;
 
-import edu.wpi.first.wpilibj.command.Command;
+import frc.robot.Diagnostics.ProfiledCommand;
 
-public class IntakeClamp extends Command {
+public class IntakeClamp extends ProfiledCommand {
     private boolean clampStatus;
 
     public IntakeClamp(boolean clampStatus){
         this.clampStatus = clampStatus;
     }
 
-    protected void execute(){
+    protected void onExecute(){
         if(clampStatus){
             IntakeSubsystem.clampIntake();
             //DONE
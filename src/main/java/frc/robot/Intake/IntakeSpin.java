@@ -1,9 +1,9 @@
 package frc.robot.Intake;
 
-import edu.wpi.first.wpilibj.command.Command;
 import frc.robot.Robot;
+import frc.robot.Diagnostics.ProfiledCommand;
 
-public class IntakeSpin extends Command {
+public class IntakeSpin extends ProfiledCommand {
 
     private double speed;
 
@@ -17,7 +17,7 @@ public class IntakeSpin extends Command {
         requires(Robot.intake);
     }
 
-    protected void execute(){
+    protected void onExecute(){
         IntakeSubsystem.spinMotors(speed);
     }
 
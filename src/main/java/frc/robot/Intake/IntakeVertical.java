@@ -1,15 +1,15 @@
 package frc.robot.Intake;
 
-import edu.wpi.first.wpilibj.command.Command;
+import frc.robot.Diagnostics.ProfiledCommand;
 
-public class IntakeVertical extends Command {
+public class IntakeVertical extends ProfiledCommand {
     private boolean clampStatus;
 
     public IntakeVertical(boolean clampStatus){
         this.clampStatus = clampStatus;
     }
 
-    protected void execute(){
+    protected void onExecute(){
         /*if(clampStatus){
             IntakeSubsystem.raiseIntake();
         } else{
@@ -10,18 +10,20 @@ import static frc.robot.OI.XBPovButton.UP;
 import static frc.robot.OI.XBPovButton.UP_LEFT;
 import static frc.robot.OI.XBPovButton.UP_RIGHT;
 
-import edu.wpi.first.networktables.NetworkTable;
-import edu.wpi.first.networktables.NetworkTableInstance;
 import edu.wpi.first.wpilibj.GenericHID.Hand;
 import edu.wpi.first.wpilibj.DigitalInput;
 import edu.wpi.first.wpilibj.Joystick;
 import edu.wpi.first.wpilibj.XboxController;
 import edu.wpi.first.wpilibj.buttons.Button;
 import edu.wpi.first.wpilibj.buttons.JoystickButton;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
-import frc.robot.Drivetrain.Drive;
+import frc.robot.Robot;
+import frc.robot.Control.InputShaper;
+import frc.robot.Drivetrain.AutoShifter;
 import frc.robot.Drivetrain.DrivetrainSubsystem;
+import frc.robot.Drivetrain.VelocityDrive;
 import frc.robot.Drivetrain.VisionTrack;
+import frc.robot.Elevator.ElevateToHeight;
+import frc.robot.Elevator.ElevatorSubsystem.ElevatorHeight;
 import frc.robot.Intake.IntakeClamp;
 import frc.robot.Intake.IntakeSubsystem;
 
@@ -53,8 +55,10 @@ public class OI {
     private JoystickButton dpadUP_LEFT;
     private JoystickButton dpadNONE;
 
-    private NetworkTable limelight;
-    private double last_valid_x_offset = 0;
+    //Trigger and intake axes are shaped once here so every caller sees the same values
+    private final InputShaper leftTriggerShaper = new InputShaper().deadband(0.05);
+    private final InputShaper rightTriggerShaper = new InputShaper().deadband(0.05);
+    private final InputShaper intakeShaper = new InputShaper().deadband(0.05);
     
     public OI(){
         xboxcontroller = new XboxController(1);
@@ -80,10 +84,20 @@ public class OI {
         dpadUP_LEFT = new XBPovButton(xboxcontroller, UP_LEFT);
         dpadNONE = new XBPovButton(xboxcontroller, NONE);
 
-        limelight = NetworkTableInstance.getDefault().getTable("limelight");
-
         ButtonB.whileHeld(new VisionTrack());
-     //   ButtonA.whenPressed(new RunCommand( () -> DrivetrainSubsystem.shiftGear() ));
+        //Switches teleop between open loop Drive and closed loop VelocityDrive
+        ButtonY.toggleWhenPressed(new VelocityDrive());
+
+        //Elevator presets on the elevator stick, only while the elevator is enabled in robotInit
+        if (Robot.elevator != null) {
+            new JoystickButton(elevatorstick, 2).whenPressed(new ElevateToHeight(ElevatorHeight.GROUND));
+            new JoystickButton(elevatorstick, 3).whenPressed(new ElevateToHeight(ElevatorHeight.INTAKE_HEIGHT));
+            new JoystickButton(elevatorstick, 4).whenPressed(new ElevateToHeight(ElevatorHeight.SWITCH));
+            new JoystickButton(elevatorstick, 5).whenPressed(new ElevateToHeight(ElevatorHeight.SCALE));
+        }
+        //A shifts by hand and turns automatic shifting off, X turns it back on
+        ButtonA.whenPressed(new RunCommand( () -> AutoShifter.manualShift() ));
+        ButtonX.whenPressed(new RunCommand( () -> AutoShifter.setEnabled(true) ));
         dpadRIGHT.whenPressed(new RunCommand( () -> IntakeSubsystem.switchIntakeClamp() ));
 /*      
         //Driver overrides in case joystick buttons fail
@@ -117,35 +131,6 @@ public class OI {
  */       
     }
 
-    /*
-    * Methods for getting limelight values
-    */
-    public double getxOffset() {
-        SmartDashboard.putNumber("xoffset",-limelight.getEntry("tx").getDouble(0.0));
-        return -limelight.getEntry("tx").getDouble(0);
-    }
-
-    public double getLastValidXOffset(){
-        return last_valid_x_offset;
-    }
-
-    public void setLastValidXOffset(double val){
-        last_valid_x_offset = val;
-    }
-
-    public double getyOffset(){
-        return -limelight.getEntry("ty").getDouble(0.0);
-    }
-
-    public void changeLEDMode(int val){
-        limelight.getEntry("ledMode").setNumber(val);
-    }
-
-    public boolean getTargetValid(){
-        return limelight.getEntry("tv").getDouble(0) == 1;
-    }
-
-
     /*
     * Methods for getting joystick values
     */
@@ -163,7 +148,7 @@ public class OI {
     }
 
     public double intakeSpeed(){
-        return intakestick.getY();
+        return intakeShaper.calculate(intakestick.getY());
 
     }
 
@@ -171,12 +156,10 @@ public class OI {
      * Methods for controlling quickturn 
      */
     public double getLeftTrigger(){
-        double deadband = 0.05;
-        return Drive.deadbandX(xboxcontroller.getTriggerAxis(Hand.kLeft), deadband);
+        return leftTriggerShaper.calculate(xboxcontroller.getTriggerAxis(Hand.kLeft));
     }
     public double getRightTrigger(){
-        double deadband = 0.05;
-        return Drive.deadbandX(xboxcontroller.getTriggerAxis(Hand.kRight), deadband);
+        return rightTriggerShaper.calculate(xboxcontroller.getTriggerAxis(Hand.kRight));
     }
     public boolean isQuickturn(){
 
@@ -1,34 +1,165 @@
 package frc.robot.OI;
 
+import java.util.function.DoubleSupplier;
+
+import edu.wpi.first.wpilibj.Timer;
+
+/**
+ * PID controller on an error signal, computed on the caller's loop
+ *
+ *  - dt is measured from the FPGA clock on every call, so late or skipped loops don't skew I and D
+ *  - the integral is clamped and stops accumulating while the output is saturated (anti-windup)
+ *  - the derivative is low-pass filtered, since camera and encoder errors are noisy
+ *  - a static feedforward (sign(error) * kS) gets the robot over friction without hand tuned offsets
+ *
+ * Call reset() when the controller starts being used again (e.g. in a command's initialize())
+ * so a stale integral or derivative doesn't kick the first output.
+ */
 public class PIDController {
 
-    private double kP, kI, kD, dt;
-    private double last_error = 0;
-    private double counter = 0;
+    // dt outside this range means the controller wasn't called for a while, so the step uses the nominal dt
+    private static final double kMaxDt = 0.1;
+
+    private double kP, kI, kD;
+    private final double nominalDt;
+
+    private double kS = 0;
+    private double tolerance = 0;
+    private double minOutput = Double.NEGATIVE_INFINITY, maxOutput = Double.POSITIVE_INFINITY;
+    private double maxIntegral = Double.POSITIVE_INFINITY;
+    private double integralZone = Double.POSITIVE_INFINITY;
+    private double derivativeTimeConstant = 0;
+
+    private DoubleSupplier clock = Timer::getFPGATimestamp;
 
+    private double integral = 0;
+    private double lastError = 0;
+    private double derivative = 0;
+    private double lastTime = 0;
+    private boolean hasLast = false;
+    private double lastOutput = 0;
+
+    /**
+     * @param dt   nominal loop period, used for the first step and after a gap
+     */
     public PIDController(double kP, double kI, double kD, double dt) {
         this.kP = kP;
         this.kI = kI;
         this.kD = kD;
-        this.dt = dt;
+        this.nominalDt = dt;
+    }
+
+    public PIDController(double kP, double kI, double kD) {
+        this(kP, kI, kD, 0.02);
+    }
+
+    public void setGains(double kP, double kI, double kD) {
+        this.kP = kP;
+        this.kI = kI;
+        this.kD = kD;
+    }
+
+    /**
+     * Adds sign(error) * kS to the output whenever the error is outside the tolerance
+     */
+    public void setStaticFeedforward(double kS) {
+        this.kS = kS;
+    }
+
+    // Errors within this are on target: no static feedforward and no integration
+    public void setTolerance(double tolerance) {
+        this.tolerance = tolerance;
+    }
+
+    public void setOutputLimits(double min, double max) {
+        minOutput = min;
+        maxOutput = max;
     }
 
-    public void configure(double initial_error) {
-        this.last_error = initial_error;
+    /**
+     * @param maxIntegral   largest magnitude of the accumulated error * seconds
+     * @param zone          only integrate while |error| is below this
+     */
+    public void setIntegralLimits(double maxIntegral, double zone) {
+        this.maxIntegral = maxIntegral;
+        this.integralZone = zone;
+    }
+
+    // Time constant in seconds of the first order filter on the derivative, 0 disables it
+    public void setDerivativeFilter(double timeConstant) {
+        derivativeTimeConstant = timeConstant;
+    }
+
+    public void setClock(DoubleSupplier clock) {
+        this.clock = clock;
+    }
+
+    public void reset() {
+        integral = 0;
+        derivative = 0;
+        lastOutput = 0;
+        hasLast = false;
+    }
+
+    // Resets and seeds the derivative with a known starting error
+    public void configure(double initialError) {
+        reset();
+        lastError = initialError;
+        lastTime = clock.getAsDouble();
+        hasLast = true;
     }
 
     public double calculate(double error) {
+        return calculate(error, 0);
+    }
 
-        double ret;
+    /**
+     * @param error         setpoint - measurement
+     * @param feedforward   added to the output before it is limited
+     * @return              limited output
+     */
+    public double calculate(double error, double feedforward) {
+        double now = clock.getAsDouble();
+        double dt = now - lastTime;
+        boolean validDt = hasLast && dt > 0 && dt <= kMaxDt;
+        if (!validDt) {
+            dt = nominalDt;
+        }
 
-        if (counter == 0) {
-            ret = kP * error + kD * (error - error/2) / dt;
+        // Derivative only from two real samples, the first call has nothing to difference against
+        if (validDt) {
+            double rawDerivative = (error - lastError) / dt;
+            double alpha = dt / (derivativeTimeConstant + dt);
+            derivative += alpha * (rawDerivative - derivative);
         } else {
-            ret = kP * error + kD * (error - last_error) / dt;
-            this.last_error = error;
+            derivative = 0;
+        }
+
+        // Conditional integration: hold the integral while saturated in the direction of the error
+        boolean saturated = (lastOutput >= maxOutput && error > 0) || (lastOutput <= minOutput && error < 0);
+        if (Math.abs(error) > tolerance && Math.abs(error) < integralZone && !saturated) {
+            integral = Math.max(-maxIntegral, Math.min(maxIntegral, integral + error * dt));
+        }
 
+        double output = kP * error + kI * integral + kD * derivative + feedforward;
+        if (Math.abs(error) > tolerance) {
+            output += Math.copySign(kS, error);
         }
-        counter++;
-        return ret;
+        output = Math.max(minOutput, Math.min(maxOutput, output));
+
+        lastError = error;
+        lastTime = now;
+        hasLast = true;
+        lastOutput = output;
+        return output;
     }
-}
\ No newline at end of file
+
+    public double getIntegral() {
+        return integral;
+    }
+
+    public double getDerivative() {
+        return derivative;
+    }
+
+}
@@ -2,16 +2,33 @@ package frc.robot;
 
 import edu.wpi.cscore.UsbCamera;
 import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.RobotController;
 import edu.wpi.first.wpilibj.TimedRobot;
 import edu.wpi.first.wpilibj.command.Command;
 import edu.wpi.first.wpilibj.command.Scheduler;
 import edu.wpi.first.wpilibj.smartdashboard.SendableChooser;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import frc.robot.Autonomous.AutonomousRegistry;
 import frc.robot.Autonomous.PathFollower;
+import frc.robot.Autonomous.TrajectoryCache;
+import frc.robot.Autonomous.TrajectoryService;
+import frc.robot.Diagnostics.AllocationMonitor;
+import frc.robot.Diagnostics.LoopProfiler;
+import frc.robot.Diagnostics.LoopProfiler.Mode;
+import frc.robot.Drivetrain.AutoShifter;
+import frc.robot.Drivetrain.DriveLoop;
 import frc.robot.Drivetrain.DrivetrainSubsystem;
+import frc.robot.Drivetrain.DrivetrainSubsystem.Gear;
+import frc.robot.Drivetrain.Odometry;
+import frc.robot.Drivetrain.Pose;
+import frc.robot.Drivetrain.VelocityDrive;
+import frc.robot.Elevator.ElevateToHeight;
 import frc.robot.Elevator.ElevatorSubsystem;
+import frc.robot.Hardware.ControllerShadow;
 import frc.robot.Intake.IntakeSubsystem;
 import frc.robot.OI.OI;
+import frc.robot.Telemetry.Telemetry;
+import frc.robot.Vision.Limelight;
 
 public class Robot extends TimedRobot {
 
@@ -28,6 +45,36 @@ public class Robot extends TimedRobot {
 
   Command autonomousCommand;
 
+  // Percent output keeps the keys existing dashboard layouts use, voltage is published alongside
+  private static final int kLeftOutput = Telemetry.register("Left Motor Output");
+  private static final int kRightOutput = Telemetry.register("Right Motor Output");
+  private static final int kLeftVoltage = Telemetry.register("Left Motor Voltage");
+  private static final int kRightVoltage = Telemetry.register("Right Motor Voltage");
+  // Heading and encoders read from zero at the last resetGyro()/resetEncoders(), as before
+  private static final int kGyroHeading = Telemetry.register("Raw Gyro Heading");
+  private static final int kRightEncoder = Telemetry.register("Right Encoder");
+  private static final int kLeftEncoder = Telemetry.register("Left Encoder");
+  private static final int kPoseX = Telemetry.register("Pose X");
+  private static final int kPoseY = Telemetry.register("Pose Y");
+  private static final int kPoseHeading = Telemetry.register("Pose Heading");
+  private static final int kXOffset = Telemetry.register("xoffset", 0.05, 0.01);
+
+  private final Pose pose = new Pose();
+
+  private static final int kSchedulerSection = LoopProfiler.register("Scheduler.run");
+  private static final int kRobotPeriodicSection = LoopProfiler.register("robotPeriodic");
+
+  // Runs drivetrain sampling, outputs and path tracking on a Notifier instead of the 20 ms loop
+  private static final boolean kUseDriveLoop = false;
+  private static final double kDriveLoopPeriod = 0.01;
+
+  // Records allocations per command as well as per loop section, costs a few us per command
+  private static final boolean kAllocationAudit = false;
+
+  // Controller resets are polled every this many loops, each poll is a JNI call per controller
+  private static final int kResetCheckLoops = 10;
+  private int loopCount = 0;
+
   @Override
   public void robotInit() {
     // intake = IntakeSubsystem.getInstance();
@@ -35,6 +82,24 @@ public class Robot extends TimedRobot {
     drivetrain = DrivetrainSubsystem.getInstance();
     oi = new OI();
 
+    // Allocation counters are read for this (the main) thread
+    AllocationMonitor.init();
+    AllocationMonitor.setAudit(kAllocationAudit);
+
+    // Dashboard values are published from a background thread from here on
+    Telemetry.start();
+
+    // Limelight frames are read on the NetworkTables listener thread from here on
+    Limelight.start();
+
+    // Loads every path profile now so autonomousInit never touches the file system
+    TrajectoryCache.loadAll();
+
+    // The fast drivetrain loop is opt-in until it has been tuned on the robot
+    if (kUseDriveLoop) {
+      DriveLoop.start(kDriveLoopPeriod);
+    }
+
     /*
      * camera = CameraServer.getInstance().startAutomaticCapture(0);
      * 
@@ -57,74 +122,143 @@ public class Robot extends TimedRobot {
 
   @Override
   public void disabledInit() {
+    LoopProfiler.dump();
+    AllocationMonitor.dump();
+    ElevateToHeight.dump();
+    VelocityDrive.dump();
+    AutoShifter.dump();
+    TrajectoryService.clear();
+    LoopProfiler.setMode(Mode.DISABLED);
+
     DrivetrainSubsystem.resetEncoders();
     DrivetrainSubsystem.resetGyro();
     Scheduler.getInstance().removeAll();
 
     DrivetrainSubsystem.leftMotorB.setSelectedSensorPosition(0, 0, 10);
-    oi.setLastValidXOffset(0);
   }
 
   @Override
   public void robotPeriodic() {
-    SmartDashboard.putNumber("Left Motor Output", DrivetrainSubsystem.leftMotorA.getMotorOutputPercent());
-    SmartDashboard.putNumber("Right Motor Output", DrivetrainSubsystem.rightMotorA.getMotorOutputPercent());
-
-    SmartDashboard.putNumber("Raw Gyro Heading", DrivetrainSubsystem.gyro.getAngle());
-    SmartDashboard.putNumber("Right Encoder", DrivetrainSubsystem.rightMotorA.getSelectedSensorPosition(0));
-    SmartDashboard.putNumber("Left Encoder", DrivetrainSubsystem.leftMotorA.getSelectedSensorPosition(0));
-
-    double offset = oi.getxOffset();
-    if (Math.abs(offset) > 0.1) {
-      oi.setLastValidXOffset(offset);
+    long start = LoopProfiler.start();
+    long bytes = AllocationMonitor.start();
+
+    if (++loopCount % kResetCheckLoops == 0) {
+      DrivetrainSubsystem.checkResets();
+      if (elevator != null) {
+        ElevatorSubsystem.checkResets();
+      }
     }
 
+    // Reads from the snapshot taken at the start of this loop
+    double leftVoltage = DrivetrainSubsystem.getLeftVoltage();
+    double rightVoltage = DrivetrainSubsystem.getRightVoltage();
+    double batteryVoltage = RobotController.getBatteryVoltage();
+    Telemetry.put(kLeftOutput, leftVoltage / batteryVoltage);
+    Telemetry.put(kRightOutput, rightVoltage / batteryVoltage);
+    Telemetry.put(kLeftVoltage, leftVoltage);
+    Telemetry.put(kRightVoltage, rightVoltage);
+
+    Telemetry.put(kGyroHeading, DrivetrainSubsystem.getHeading());
+    Telemetry.put(kRightEncoder, DrivetrainSubsystem.getRightPosition());
+    Telemetry.put(kLeftEncoder, DrivetrainSubsystem.getLeftPosition());
+
+    Odometry.getPose(pose);
+    Telemetry.put(kPoseX, pose.x);
+    Telemetry.put(kPoseY, pose.y);
+    Telemetry.put(kPoseHeading, Math.toDegrees(pose.theta));
+
+    // Publishes xoffset for the dashboard
+    Telemetry.put(kXOffset, Limelight.getTarget().xOffset);
+
+    AllocationMonitor.stop(kRobotPeriodicSection, bytes);
+    LoopProfiler.stop(kRobotPeriodicSection, start);
+    LoopProfiler.publish();
+    ControllerShadow.publish();
+    AllocationMonitor.endLoop();
   }
 
   @Override
   public void autonomousInit() {
+    LoopProfiler.setMode(Mode.AUTONOMOUS);
 
     gameData = DriverStation.getInstance().getGameSpecificMessage();
 
     Position position = positionChooser.getSelected();
     Priority priority = priorityChooser.getSelected();
 
-    // DrivetrainSubsystem.shiftGear(Value.kReverse);
+    // Paths are generated with the low gear feedforward
+    DrivetrainSubsystem.setGear(Gear.LOW);
 
-    // autonomousCommand = new AutonomousCommand(gameData, position, priority);
+    // Built during disabledPeriodic, so this is just a lookup
+    autonomousCommand = AutonomousRegistry.take(position, priority, gameData);
+    if (autonomousCommand != null) {
+      autonomousCommand.start();
+    }
 
     // new PathFollower("Straight15ft").start();
   }
 
   @Override
   public void autonomousPeriodic() {
-    Scheduler.getInstance().run();
+    runScheduler();
 
   }
 
   @Override
   public void teleopPeriodic() {
-    Scheduler.getInstance().run();
+    runScheduler();
 
   }
 
   public void teleopInit() {
+    LoopProfiler.setMode(Mode.TELEOP);
     DrivetrainSubsystem.setBrakeMode();
     DrivetrainSubsystem.leftMotorB.setSelectedSensorPosition(0, 0, 10);
-    oi.setLastValidXOffset(0);
 
-    // DrivetrainSubsystem.shiftGear(Value.kReverse);
+    // Starts in low gear, AutoShifter takes it from there
+    AutoShifter.reset();
+
+  }
 
+  @Override
+  public void testInit() {
+    LoopProfiler.setMode(Mode.TEST);
   }
 
   @Override
   public void testPeriodic() {
-    Scheduler.getInstance().run();
+    runScheduler();
   }
 
   public void disabledPeriodic() {
+    // DriveLoop samples the drivetrain itself while it runs, this loop takes a copy of its latest sample
+    if (!DriveLoop.isRunning()) {
+      DrivetrainSubsystem.sample();
+    } else {
+      DrivetrainSubsystem.refresh();
+    }
+
     gameData = DriverStation.getInstance().getGameSpecificMessage();
     SmartDashboard.putString("gameData", gameData);
+
+    // One routine per loop until every combination is ready for autonomousInit
+    AutonomousRegistry.buildNext();
+  }
+
+  // Samples the drivetrain sensors, then runs the scheduler while timing it
+  private void runScheduler() {
+    // DriveLoop samples the drivetrain itself while it runs, this loop takes a copy of its latest sample
+    if (!DriveLoop.isRunning()) {
+      DrivetrainSubsystem.sample();
+    } else {
+      DrivetrainSubsystem.refresh();
+    }
+
+    long start = LoopProfiler.start();
+    long bytes = AllocationMonitor.start();
+    Scheduler.getInstance().run();
+    AllocationMonitor.stop(kSchedulerSection, bytes);
+    LoopProfiler.stop(kSchedulerSection, start);
   }
 
   public enum Position {
@@ -0,0 +1,154 @@
+package frc.robot.Simulation;
+
+import frc.robot.Control.GainsFile;
+
+/**
+ * Model of the drivetrain built from its characterization constants, V = kS*sign(v) + kV*v + kA*a per
+ * side, with heading from the difference in side speeds
+ *
+ * Simple enough to step at 1 ms many times faster than real time, and close enough to catch a path
+ * that is too aggressive for the robot or a follower that has been mistuned.
+ */
+public class DrivetrainPlant {
+
+    // Voltage compensation on the Talons makes percent output a fraction of this
+    private static final double kNominalVoltage = 12;
+
+    // Characterized defaults from CurvatureDriveTriggered/PathFollower; nobody has measured kA yet,
+    // so it is a guess at what a 6 CIM robot of this weight would have
+    private static final double kDefaultLeftS = 0.968, kDefaultRightS = 1.058;
+    private static final double kDefaultV = 12 / 2.872716583788768;
+    private static final double kDefaultA = 0.3;
+
+    // Same effective wheelbase PathFollower generates paths with
+    private static final double kTrackWidth = 0.59817;
+
+    public static class Side {
+
+        private final double kS, kV, kA;
+
+        double position = 0, velocity = 0; // meters, m/s
+        double commanded = 0, applied = 0; // percent output, applied includes the open loop ramp
+        double ramp = 0;                   // seconds from neutral to full
+        boolean brake = true;
+
+        // Talon velocity loop, run every physics step like the Talon's 1 ms loop; the sensor is ideal
+        boolean velocityControl = false;
+        double targetVelocity = 0;          // m/s
+        double velocityKf = 0, velocityKp = 0; // percent output per m/s
+        double arbitraryFeedForward = 0;    // percent output
+
+        public Side(double kS, double kV, double kA) {
+            this.kS = kS;
+            this.kV = kV;
+            this.kA = kA;
+        }
+
+        void step(double dt) {
+            if (velocityControl) {
+                double output = velocityKf * targetVelocity + velocityKp * (targetVelocity - velocity) + arbitraryFeedForward;
+                commanded = Math.max(-1, Math.min(1, output));
+            }
+
+            if (ramp > 0) {
+                double maxChange = dt / ramp;
+                applied += Math.max(-maxChange, Math.min(maxChange, commanded - applied));
+            } else {
+                applied = commanded;
+            }
+
+            double voltage = applied * kNominalVoltage;
+            double acceleration;
+            if (voltage == 0 && !brake) {
+                // Coasting, only friction slows the wheels
+                acceleration = -Math.signum(velocity) * kS / kA;
+            } else {
+                // Static friction holds a stopped side until the voltage gets over kS
+                double friction = velocity != 0 ? Math.signum(velocity) * kS
+                        : Math.signum(voltage) * Math.min(Math.abs(voltage), kS);
+                acceleration = (voltage - friction - kV * velocity) / kA;
+            }
+
+            double newVelocity = velocity + acceleration * dt;
+            // Friction can stop the wheels but not drive them backwards
+            if (velocity != 0 && Math.signum(newVelocity) != Math.signum(velocity) && Math.abs(voltage) <= kS) {
+                newVelocity = 0;
+            }
+
+            position += (velocity + newVelocity) / 2 * dt;
+            velocity = newVelocity;
+        }
+
+        void reset() {
+            position = 0;
+            velocity = 0;
+            commanded = 0;
+            applied = 0;
+            velocityControl = false;
+        }
+
+        public double getVoltage() {
+            return applied * kNominalVoltage;
+        }
+
+    }
+
+    public final Side left, right;
+    private double heading = 0; // radians, counter clockwise positive
+    private double time = 0;
+
+    public DrivetrainPlant(Side left, Side right) {
+        this.left = left;
+        this.right = right;
+    }
+
+    /**
+     * Builds the plant from the gains CharacterizeDrive saved, falling back to the defaults above
+     */
+    public static DrivetrainPlant fromGains() {
+        GainsFile gains = new GainsFile("drivetrain");
+        double leftA = gains.get("left.kA", 0), rightA = gains.get("right.kA", 0);
+        return new DrivetrainPlant(
+                new Side(gains.get("left.kS", kDefaultLeftS), gains.get("left.kV", kDefaultV),
+                        leftA > 0 ? leftA : kDefaultA),
+                new Side(gains.get("right.kS", kDefaultRightS), gains.get("right.kV", kDefaultV),
+                        rightA > 0 ? rightA : kDefaultA));
+    }
+
+    /**
+     * Same plant with each side needing more (factor > 1) or less voltage for the same motion, for
+     * checking how a controller copes with a robot that doesn't match its characterization
+     */
+    public DrivetrainPlant scaled(double leftFactor, double rightFactor) {
+        return new DrivetrainPlant(
+                new Side(left.kS * leftFactor, left.kV * leftFactor, left.kA * leftFactor),
+                new Side(right.kS * rightFactor, right.kV * rightFactor, right.kA * rightFactor));
+    }
+
+    public void step(double dt) {
+        double leftBefore = left.velocity, rightBefore = right.velocity;
+        left.step(dt);
+        right.step(dt);
+
+        double leftSpeed = (leftBefore + left.velocity) / 2, rightSpeed = (rightBefore + right.velocity) / 2;
+        heading += (rightSpeed - leftSpeed) / kTrackWidth * dt;
+        time += dt;
+    }
+
+    // Puts the robot back at rest; time keeps running so timestamps stay monotonic
+    public void reset() {
+        left.reset();
+        right.reset();
+        heading = 0;
+    }
+
+    // navX style angle, degrees clockwise positive
+    public double getGyroAngle() {
+        return -Math.toDegrees(heading);
+    }
+
+    public double getTime() {
+        return time;
+    }
+
+}
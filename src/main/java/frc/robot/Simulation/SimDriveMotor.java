@@ -0,0 +1,95 @@
+package frc.robot.Simulation;
+
+import com.ctre.phoenix.motorcontrol.ControlMode;
+import com.ctre.phoenix.motorcontrol.NeutralMode;
+
+import frc.robot.Drivetrain.DrivetrainSubsystem;
+import frc.robot.Hardware.DriveMotor;
+
+/**
+ * DriveMotor on one side of a DrivetrainPlant; open loop output and the Talon velocity loop are modelled
+ */
+public class SimDriveMotor implements DriveMotor {
+
+    private static final int kSlots = 4;
+
+    private final DrivetrainPlant.Side side;
+    private boolean warned = false;
+
+    // Velocity gains per Talon slot, in Talon units
+    private final double[] kF = new double[kSlots], kP = new double[kSlots];
+    private int slot = 0;
+
+    public SimDriveMotor(DrivetrainPlant.Side side) {
+        this.side = side;
+    }
+
+    @Override
+    public void set(ControlMode mode, double value) {
+        side.velocityControl = false;
+        if (mode == ControlMode.PercentOutput) {
+            side.commanded = Math.max(-1, Math.min(1, value));
+            return;
+        }
+
+        if (mode != ControlMode.Disabled && !warned) {
+            System.out.println("SimDriveMotor: " + mode + " isn't simulated, output is neutral");
+            warned = true;
+        }
+        side.commanded = 0;
+    }
+
+    @Override
+    public void setVelocity(double ticksPer100ms, double arbitraryFeedForward) {
+        // Talon units are full output (1023) per tick per 100 ms, the plant works in percent output per m/s
+        double perMetersPerSecond = DrivetrainSubsystem.kTicksPerMeter / 10 / 1023;
+        side.velocityControl = true;
+        side.targetVelocity = ticksPer100ms * 10 / DrivetrainSubsystem.kTicksPerMeter;
+        side.velocityKf = kF[slot] * perMetersPerSecond;
+        side.velocityKp = kP[slot] * perMetersPerSecond;
+        side.arbitraryFeedForward = arbitraryFeedForward;
+    }
+
+    @Override
+    public void selectProfileSlot(int slot) {
+        this.slot = slot;
+    }
+
+    @Override
+    public void configVelocityGains(int slot, double kF, double kP) {
+        this.kF[slot] = kF;
+        this.kP[slot] = kP;
+    }
+
+    @Override
+    public void setOpenLoopRamp(double secondsFromNeutralToFull) {
+        side.ramp = secondsFromNeutralToFull;
+    }
+
+    @Override
+    public void setNeutralMode(NeutralMode mode) {
+        side.brake = mode != NeutralMode.Coast;
+    }
+
+    @Override
+    public int getPosition() {
+        return (int) Math.round(side.position * DrivetrainSubsystem.kTicksPerMeter);
+    }
+
+    @Override
+    public int getVelocity() {
+        return (int) Math.round(side.velocity * DrivetrainSubsystem.kTicksPerMeter / 10);
+    }
+
+    @Override
+    public double getVoltage() {
+        return side.getVoltage();
+    }
+
+    // Current isn't modelled
+    @Override
+    public double getCurrent() {
+        return 0;
+    }
+
+}
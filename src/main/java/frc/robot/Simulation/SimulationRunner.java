@@ -0,0 +1,217 @@
+package frc.robot.Simulation;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.hal.sim.DriverStationSim;
+import edu.wpi.first.wpilibj.command.Command;
+import edu.wpi.first.wpilibj.command.Scheduler;
+import frc.robot.Robot;
+import frc.robot.Autonomous.PathFollower;
+import frc.robot.Autonomous.TankTrajectory;
+import frc.robot.Autonomous.TrajectoryCache;
+import frc.robot.Drivetrain.DrivetrainSubsystem;
+import frc.robot.Drivetrain.Odometry;
+import frc.robot.Drivetrain.Pose;
+import jaci.pathfinder.Trajectory;
+
+/**
+ * Runs PathFollower on every profile against DrivetrainPlant, as fast as the CPU allows, once in
+ * each of the ENCODER and RAMSETE follower modes so their tracking can be compared, then compares
+ * open loop and velocity controlled teleop on a scripted stick trace
+ *
+ * Time comes from the plant, so the scheduler loop and everything reading
+ * DrivetrainSubsystem.getTimestamp() sees 20 ms loops no matter how fast they really run. Commands
+ * that use WPILib timeouts (AutoDelay, AutoDriveTimed) still run on the wall clock.
+ *
+ * Has its own main so it never runs from the robot's entry point; start it with
+ *   ./gradlew simulateAutos
+ *   ./gradlew simulateAutos -Ppaths=LeftScale,RightSwitch
+ */
+public class SimulationRunner {
+
+    private static final double kLoopPeriod = 0.02;
+    private static final double kPhysicsPeriod = 0.001;
+    // How long past the end of its profile a path may run before it counts as stuck
+    private static final double kTimeoutMargin = 3;
+
+    // MOTION_PROFILE runs its loop on the Talons, which SimDriveMotor doesn't model
+    private static final PathFollower.Mode[] kSimulatedModes = { PathFollower.Mode.ENCODER, PathFollower.Mode.RAMSETE };
+
+    // Left and right sticks (after mixing), each held for kStickStepTime: straight, a curve, quickturns and a reverse
+    private static final double[][] kStickTrace = {
+        { 0.3, 0.3 }, { 0.6, 0.6 }, { 1.0, 1.0 }, { 0.8, 0.4 }, { 0.4, 0.8 },
+        { 0.25, -0.25 }, { -0.25, 0.25 }, { -0.5, -0.5 }, { 0.1, 0.1 }, { 0, 0 }
+    };
+    private static final double kStickStepTime = 1.5;
+
+    private static final DrivetrainPlant plant = DrivetrainPlant.fromGains();
+    private static final Pose pose = new Pose();
+
+    /**
+     * @param args   profile directory, then optionally the path names to run (default all of them)
+     */
+    public static void main(String... args) {
+        HAL.initialize(500, 0);
+
+        // Commands that don't run when disabled need an enabled robot
+        DriverStationSim driverStation = new DriverStationSim();
+        driverStation.setDsAttached(true);
+        driverStation.setAutonomous(true);
+        driverStation.setEnabled(true);
+        driverStation.notifyNewData();
+
+        TrajectoryCache.loadAll(new File(args.length > 0 ? args[0] : TrajectoryCache.kProfileDirectory));
+        List<String> names = args.length > 1 ? Arrays.asList(args).subList(1, args.length) : TrajectoryCache.getNames();
+
+        DrivetrainSubsystem.setHardware(new SimDriveMotor(plant.left), new SimDriveMotor(plant.right),
+                plant::getGyroAngle, plant::getTime);
+        Robot.drivetrain = DrivetrainSubsystem.getInstance();
+
+        System.out.println(String.format("%-24s %-8s %8s %8s %10s %10s", "path", "mode", "profile", "time", "max error", "end error"));
+
+        double simulatedTime = 0;
+        long start = System.nanoTime();
+
+        for (String name : names) {
+            for (PathFollower.Mode mode : kSimulatedModes) {
+                simulatedTime += run(name, mode);
+            }
+        }
+
+        double wallTime = (System.nanoTime() - start) / 1e9;
+        System.out.println(String.format("%d runs, %.1f s simulated in %.2f s (%.0fx real time)",
+                names.size() * kSimulatedModes.length, simulatedTime, wallTime, simulatedTime / wallTime));
+
+        compareSpeedControl();
+
+        // Notifiers and the navX thread would otherwise keep the JVM alive
+        System.exit(0);
+    }
+
+    /**
+     * Follows one path from rest and prints how closely the simulated robot tracked it
+     *
+     * @return   simulated seconds the path took
+     */
+    private static double run(String name, PathFollower.Mode mode) {
+        TankTrajectory trajectory = TrajectoryCache.get(name);
+        double dt = trajectory.left.segments[0].dt;
+        double profileTime = trajectory.length() * dt;
+
+        plant.reset();
+        setCenter(trajectory, 0, pose);
+        Odometry.reset(pose.x, pose.y, trajectory.left.segments[0].heading);
+
+        Command command = new PathFollower(name).setMode(mode);
+        command.start();
+
+        double startTime = Double.NaN;
+        double maxError = 0, error = 0;
+        boolean timedOut = false;
+
+        Pose reference = new Pose();
+        while (true) {
+            for (double t = 0; t < kLoopPeriod - 1e-9; t += kPhysicsPeriod) {
+                plant.step(kPhysicsPeriod);
+            }
+            DrivetrainSubsystem.sample();
+            Scheduler.getInstance().run();
+
+            if (Double.isNaN(startTime)) {
+                startTime = DrivetrainSubsystem.getTimestamp();
+            }
+            double elapsed = DrivetrainSubsystem.getTimestamp() - startTime;
+
+            setCenter(trajectory, (int) (elapsed / dt), reference);
+            Odometry.getPose(pose);
+            error = Math.hypot(pose.x - reference.x, pose.y - reference.y);
+            maxError = Math.max(maxError, error);
+
+            if (!command.isRunning()) {
+                break;
+            } else if (elapsed > profileTime + kTimeoutMargin) {
+                timedOut = true;
+                break;
+            }
+        }
+
+        // Drops the finished path and the default Drive command, which would read joysticks that
+        // don't exist here
+        Scheduler.getInstance().removeAll();
+        DrivetrainSubsystem.drive(0, 0);
+
+        double duration = DrivetrainSubsystem.getTimestamp() - startTime;
+        System.out.println(String.format("%-24s %-8s %7.2fs %7.2fs %9.3fm %9.3fm%s", name, mode, profileTime, duration,
+                maxError, error, timedOut ? "  TIMED OUT" : ""));
+        return duration;
+    }
+
+    /**
+     * Drives the same stick trace open loop (stick as percent output, like Drive) and closed loop
+     * (stick times top speed through driveVelocity(), like VelocityDrive) on the characterized plant
+     * and on plants that need more voltage than the gains say, and prints the speed tracking error
+     */
+    private static void compareSpeedControl() {
+        System.out.println();
+        System.out.println(String.format("%-24s %-8s %10s %10s", "teleop plant", "mode", "rms error", "max error"));
+
+        compareSpeedControl("characterized", plant.scaled(1, 1));
+        compareSpeedControl("15% heavier", plant.scaled(1.15, 1.15));
+        compareSpeedControl("left side 10% weak", plant.scaled(1.1, 1));
+    }
+
+    private static void compareSpeedControl(String name, DrivetrainPlant teleopPlant) {
+        DrivetrainSubsystem.setHardware(new SimDriveMotor(teleopPlant.left), new SimDriveMotor(teleopPlant.right),
+                teleopPlant::getGyroAngle, teleopPlant::getTime);
+        // New motors need the velocity slots
+        DrivetrainSubsystem.loadGains();
+
+        for (boolean closedLoop : new boolean[] { false, true }) {
+            teleopPlant.reset();
+            double maxSpeed = DrivetrainSubsystem.getMaxSpeed();
+            double squaredSum = 0, maxError = 0;
+            int samples = 0;
+            double lastLeft = 0, lastRight = 0;
+
+            for (int loop = 0; loop * kLoopPeriod < kStickTrace.length * kStickStepTime; loop++) {
+                for (double t = 0; t < kLoopPeriod - 1e-9; t += kPhysicsPeriod) {
+                    teleopPlant.step(kPhysicsPeriod);
+                }
+                DrivetrainSubsystem.sample();
+
+                // Measured against the previous loop's target, as SpeedErrorStats does on the robot
+                if (lastLeft != 0 || lastRight != 0) {
+                    double leftError = DrivetrainSubsystem.toMetersPerSecond(DrivetrainSubsystem.getLeftVelocity()) - lastLeft;
+                    double rightError = DrivetrainSubsystem.toMetersPerSecond(DrivetrainSubsystem.getRightVelocity()) - lastRight;
+                    squaredSum += leftError * leftError + rightError * rightError;
+                    maxError = Math.max(maxError, Math.max(Math.abs(leftError), Math.abs(rightError)));
+                    samples += 2;
+                }
+
+                double[] stick = kStickTrace[(int) (loop * kLoopPeriod / kStickStepTime)];
+                lastLeft = stick[0] * maxSpeed;
+                lastRight = stick[1] * maxSpeed;
+                if (closedLoop) {
+                    DrivetrainSubsystem.driveVelocity(lastLeft, lastRight);
+                } else {
+                    DrivetrainSubsystem.drive(stick[0], stick[1]);
+                }
+            }
+            DrivetrainSubsystem.drive(0, 0);
+
+            System.out.println(String.format("%-24s %-8s %8.3fm/s %8.3fm/s", name, closedLoop ? "velocity" : "open",
+                    Math.sqrt(squaredSum / Math.max(1, samples)), maxError));
+        }
+    }
+
+    // Robot center at a profile segment, halfway between the two wheel paths
+    private static void setCenter(TankTrajectory trajectory, int index, Pose out) {
+        int i = Math.min(index, trajectory.length() - 1);
+        Trajectory.Segment left = trajectory.left.segments[i], right = trajectory.right.segments[i];
+        out.set((left.x + right.x) / 2, (left.y + right.y) / 2, left.heading);
+    }
+
+}
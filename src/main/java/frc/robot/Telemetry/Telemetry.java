@@ -0,0 +1,154 @@
+package frc.robot.Telemetry;
+
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableEntry;
+import edu.wpi.first.networktables.NetworkTableInstance;
+
+/**
+ * Rate limited dashboard publisher that keeps NetworkTables work off the control loop
+ *
+ * Signals are registered once (usually into a static final int) and get a handle, a publish
+ * period and a change threshold. put() only stores the latest value in a lock-free slot, and a
+ * low priority thread started by start() copies changed values into pre-fetched
+ * NetworkTableEntry handles under the SmartDashboard table, so existing dashboards keep working.
+ */
+public class Telemetry {
+
+    // Room for LoopProfiler's three signals per section on top of everything else
+    private static final int kMaxSignals = 512;
+    // Handed out once the others are taken; put() on it is stored but never published
+    private static final int kOverflowHandle = kMaxSignals - 1;
+    private static final long kFlushPeriodMs = 20;
+
+    // Values are republished at least this often even if they don't change, in case a dashboard reconnects
+    private static final double kRefreshPeriod = 1.0;
+
+    public static final double kDefaultPeriod = 0.1;
+
+    private static final NetworkTable table = NetworkTableInstance.getDefault().getTable("SmartDashboard");
+    private static final HashMap<String, Integer> handles = new HashMap<>();
+
+    private static final NetworkTableEntry[] entries = new NetworkTableEntry[kMaxSignals];
+    private static final boolean[] isBoolean = new boolean[kMaxSignals];
+    private static final double[] periods = new double[kMaxSignals];
+    private static final double[] thresholds = new double[kMaxSignals];
+
+    // Written by the control loop, read by the flush thread; each slot holds the raw bits of a double
+    private static final AtomicLongArray values = new AtomicLongArray(kMaxSignals);
+
+    // Only touched by the flush thread
+    private static final double[] published = new double[kMaxSignals];
+    private static final double[] lastPublished = new double[kMaxSignals];
+
+    private static volatile int count = 0;
+    private static boolean overflowed = false;
+    private static Thread flushThread;
+
+    /**
+     * Registers a number signal; registering the same key again returns the existing handle
+     *
+     * @param key         SmartDashboard key
+     * @param period      minimum time between publishes in seconds
+     * @param threshold   smallest change that gets published before the refresh period
+     * @return            handle to pass to put()
+     */
+    public static synchronized int register(String key, double period, double threshold) {
+        Integer existing = handles.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        // Registration runs from static initializers and command constructors, so running out
+        // only costs the dashboard the signal instead of throwing
+        if (count == kOverflowHandle) {
+            if (!overflowed) {
+                System.out.println("Telemetry: out of signals at " + key + ", it and any later ones won't be published; raise kMaxSignals");
+                overflowed = true;
+            }
+            handles.put(key, kOverflowHandle);
+            return kOverflowHandle;
+        }
+
+        int handle = count;
+        entries[handle] = table.getEntry(key);
+        periods[handle] = period;
+        thresholds[handle] = threshold;
+        values.set(handle, Double.doubleToRawLongBits(Double.NaN));
+        published[handle] = Double.NaN;
+        lastPublished[handle] = Double.NEGATIVE_INFINITY;
+        handles.put(key, handle);
+
+        count = handle + 1;
+        return handle;
+    }
+
+    public static int register(String key) {
+        return register(key, kDefaultPeriod, 0);
+    }
+
+    public static synchronized int registerBoolean(String key) {
+        int handle = register(key, kDefaultPeriod, 0);
+        isBoolean[handle] = true;
+        return handle;
+    }
+
+    // Stores the latest value for a signal; never blocks or allocates
+    public static void put(int handle, double value) {
+        values.lazySet(handle, Double.doubleToRawLongBits(value));
+    }
+
+    public static void put(int handle, boolean value) {
+        put(handle, value ? 1.0 : 0.0);
+    }
+
+    /**
+     * Starts the flush thread, call once from robotInit
+     */
+    public static synchronized void start() {
+        if (flushThread != null) {
+            return;
+        }
+
+        flushThread = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                flush(System.nanoTime() / 1e9);
+                try {
+                    Thread.sleep(kFlushPeriodMs);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }, "Telemetry");
+        flushThread.setDaemon(true);
+        flushThread.setPriority(Thread.MIN_PRIORITY);
+        flushThread.start();
+    }
+
+    private static void flush(double now) {
+        int signals = count;
+        for (int i = 0; i < signals; i++) {
+            double value = Double.longBitsToDouble(values.get(i));
+            // Half a flush period of slack so a 20 ms signal isn't skipped every other pass because of sleep jitter
+            double sinceLast = now - lastPublished[i] + kFlushPeriodMs / 2000.0;
+            if (Double.isNaN(value) || sinceLast < periods[i]) {
+                continue;
+            }
+
+            boolean changed = Double.isNaN(published[i]) || Math.abs(value - published[i]) > thresholds[i];
+            if (!changed && sinceLast < kRefreshPeriod) {
+                continue;
+            }
+
+            if (isBoolean[i]) {
+                entries[i].setBoolean(value != 0);
+            } else {
+                entries[i].setDouble(value);
+            }
+            published[i] = value;
+            lastPublished[i] = now;
+        }
+    }
+
+}
@@ -1,37 +1,38 @@
 package frc.robot;
 
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.PrintWriter;
+import java.io.IOException;
 import java.util.Arrays;
 
 import com.ctre.phoenix.motorcontrol.ControlMode;
 import com.ctre.phoenix.motorcontrol.FeedbackDevice;
 import com.ctre.phoenix.motorcontrol.StatusFrameEnhanced;
-import com.ctre.phoenix.motorcontrol.can.TalonSRX;
 
 import edu.wpi.first.wpilibj.Joystick;
 import edu.wpi.first.wpilibj.TimedRobot;
 import edu.wpi.first.wpilibj.command.Scheduler;
+import frc.robot.Diagnostics.BlockLogger;
+import frc.robot.Hardware.ShadowTalonSRX;
 
 /*
 * This is a robot class that can be used to characterize the
-* velocity of a robot, creating a csv dataset under home/lvuser/dtchar
+* velocity of a robot, creating a BlockLogger dataset under home/lvuser/dtchar
+* (convert it to csv with frc.robot.Diagnostics.LogConverter)
 */
 
 //NOTE: If the folder home/lvuser/dtchar does not exist, it will crash
 
 public class VeloCharRobot extends TimedRobot {
-    public static final TalonSRX leftMotorA = new TalonSRX(1), leftMotorB = new TalonSRX(2), leftMotorC = new TalonSRX(3),
-            rightMotorA = new TalonSRX(4), rightMotorB = new TalonSRX(6), rightMotorC = new TalonSRX(7);
+    public static final ShadowTalonSRX leftMotorA = new ShadowTalonSRX(1), leftMotorB = new ShadowTalonSRX(2), leftMotorC = new ShadowTalonSRX(3),
+            rightMotorA = new ShadowTalonSRX(4), rightMotorB = new ShadowTalonSRX(6), rightMotorC = new ShadowTalonSRX(7);
 
     // Creates arrays for various motors so I can call the same methods for each at
     // the same time
-    public static final TalonSRX[] motors = { leftMotorA, leftMotorB, leftMotorC, rightMotorA, rightMotorB, rightMotorC};
-    private static final TalonSRX[] leftMotors = { leftMotorA, leftMotorB, leftMotorC };
-    private static final TalonSRX[] rightMotors = { rightMotorA, rightMotorB, rightMotorC };
+    public static final ShadowTalonSRX[] motors = { leftMotorA, leftMotorB, leftMotorC, rightMotorA, rightMotorB, rightMotorC};
+    private static final ShadowTalonSRX[] leftMotors = { leftMotorA, leftMotorB, leftMotorC };
+    private static final ShadowTalonSRX[] rightMotors = { rightMotorA, rightMotorB, rightMotorC };
 
-    private PrintWriter csvWriter = null;
+    private BlockLogger logger = null;
     private Joystick joystick = new Joystick(0);
     public double appliedOutput;
     public double rampRate = 0.020833333;
@@ -47,7 +48,7 @@ public class VeloCharRobot extends TimedRobot {
         Arrays.stream(leftMotors).forEach(motor -> motor.setInverted(true));
         Arrays.stream(rightMotors).forEach(motor -> motor.setInverted(false));
 
-        for (TalonSRX motor : motors) {
+        for (ShadowTalonSRX motor : motors) {
             // Current and voltage settings
             motor.configPeakCurrentLimit(30, 10);
             motor.configPeakCurrentDuration(500, 10);
@@ -71,22 +72,22 @@ public class VeloCharRobot extends TimedRobot {
 
     @Override
     public void robotPeriodic() {
-        if (!isOperatorControl() && csvWriter != null) {
-            csvWriter.close();
-            csvWriter = null;
+        if (!isOperatorControl() && logger != null) {
+            logger.close();
+            logger = null;
         }
         Scheduler.getInstance().run();
     }
 
     public void teleopPeriodic() {
         if (joystick.getRawButton(1)) { // if button A is pressed
-            if (csvWriter == null) {
-                // create a new CSV writer, reset everything
+            if (logger == null) {
+                // create a new logger, reset everything
                 try {
-                    csvWriter = new PrintWriter(
-                            new File("/home/lvuser/dtmeasure/measure_velocity-" + System.currentTimeMillis() + ".csv"));
-                    csvWriter.println("lvoltage,lvelocity,rvoltage,rvelocity");
-                } catch (FileNotFoundException e) {
+                    logger = new BlockLogger(
+                            new File("/home/lvuser/dtmeasure/measure_velocity-" + System.currentTimeMillis() + ".rlog"),
+                            "lvoltage", "lvelocity", "rvoltage", "rvelocity");
+                } catch (IOException e) {
                     throw new RuntimeException(e);
                 }
                 appliedOutput = 0;
@@ -94,8 +95,11 @@ public class VeloCharRobot extends TimedRobot {
                 rightMotorA.set(ControlMode.PercentOutput, 0);
             } else {
 
-                csvWriter.println(leftMotorA.getMotorOutputVoltage() + "," + leftMotorA.getSelectedSensorVelocity(0)
-                        + "," + rightMotorA.getMotorOutputVoltage() + "," + rightMotorA.getSelectedSensorVelocity(0));
+                logger.set(0, leftMotorA.getMotorOutputVoltage());
+                logger.set(1, leftMotorA.getSelectedSensorVelocity(0));
+                logger.set(2, rightMotorA.getMotorOutputVoltage());
+                logger.set(3, rightMotorA.getSelectedSensorVelocity(0));
+                logger.endRow();
 
                 appliedOutput += rampRate * ((System.currentTimeMillis() - lastTime) / 1000.0);
                 lastTime = System.currentTimeMillis();
@@ -104,9 +108,9 @@ public class VeloCharRobot extends TimedRobot {
             }
         } else {
             appliedOutput = 0;
-            if (csvWriter != null) {
-                csvWriter.close();
-                csvWriter = null;
+            if (logger != null) {
+                logger.close();
+                logger = null;
             }
             leftMotorA.set(ControlMode.PercentOutput, 0);
             rightMotorA.set(ControlMode.PercentOutput, 0);
@@ -0,0 +1,126 @@
+package frc.robot.Vision;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import edu.wpi.first.networktables.EntryListenerFlags;
+import edu.wpi.first.networktables.EntryNotification;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableEntry;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.NetworkTableValue;
+
+/**
+ * Event driven reader for the Limelight table
+ *
+ * NetworkTables only sends a value when it changes, so a frame can arrive with any of tv, tx, ty,
+ * ta and tl left out (tl repeats whenever the pipeline takes as long as last time). A listener on
+ * all of them rebuilds the VisionTarget whenever one of them changes and swaps it into an
+ * AtomicReference; getTarget() is just a read of that reference, so the control loop never does a
+ * NetworkTables lookup.
+ *
+ * The values of one frame are received together, so the newest of their NetworkTables timestamps
+ * is taken as the frame's arrival; a value older than that was simply not resent because it didn't
+ * change. If the listener runs between two values of the same frame, the next call publishes the
+ * completed frame again under a new frame number, so a half updated frame is replaced within the
+ * same update. Notifications that bring nothing new are ignored.
+ */
+public class Limelight {
+
+    // Time from exposure to the start of the pipeline, on top of the reported tl
+    public static final double kCaptureLatency = 0.011;
+
+    private static final NetworkTable table = NetworkTableInstance.getDefault().getTable("limelight");
+    private static final NetworkTableEntry tv = table.getEntry("tv");
+    private static final NetworkTableEntry tx = table.getEntry("tx");
+    private static final NetworkTableEntry ty = table.getEntry("ty");
+    private static final NetworkTableEntry ta = table.getEntry("ta");
+    private static final NetworkTableEntry tl = table.getEntry("tl");
+    private static final NetworkTableEntry ledMode = table.getEntry("ledMode");
+
+    private static final NetworkTableEntry[] frameEntries = { tv, tx, ty, ta, tl };
+
+    private static final AtomicReference<VisionTarget> target = new AtomicReference<>(VisionTarget.kNone);
+
+    // Only touched by the listener thread
+    private static long frameCount = 0;
+
+    private static final int[] listeners = new int[frameEntries.length];
+    private static boolean listening = false;
+
+    /**
+     * Starts listening for frames; call once from robotInit()
+     */
+    public static synchronized void start() {
+        if (listening) {
+            return;
+        }
+        for (int i = 0; i < frameEntries.length; i++) {
+            listeners[i] = frameEntries[i].addListener(Limelight::onValue, EntryListenerFlags.kNew | EntryListenerFlags.kUpdate);
+        }
+        listening = true;
+    }
+
+    public static synchronized void stop() {
+        if (!listening) {
+            return;
+        }
+        for (int i = 0; i < frameEntries.length; i++) {
+            frameEntries[i].removeListener(listeners[i]);
+        }
+        listening = false;
+    }
+
+    /**
+     * @return   the latest frame, or VisionTarget.kNone before the first one
+     */
+    public static VisionTarget getTarget() {
+        return target.get();
+    }
+
+    // 0 pipeline default, 1 off, 2 blink, 3 on
+    public static void setLEDMode(int mode) {
+        ledMode.setNumber(mode);
+    }
+
+    private static void onValue(EntryNotification notification) {
+        // Each value and its arrival time are read together, so a frame landing meanwhile can't
+        // pair one frame's number with the next one's timestamp
+        NetworkTableValue valid = tv.getValue();
+        NetworkTableValue x = tx.getValue();
+        NetworkTableValue y = ty.getValue();
+        NetworkTableValue area = ta.getValue();
+        NetworkTableValue latencyValue = tl.getValue();
+
+        long arrival = Math.max(notification.value.getTime(), Math.max(Math.max(timeOf(valid), timeOf(x)),
+                Math.max(timeOf(y), Math.max(timeOf(area), timeOf(latencyValue)))));
+
+        double latency = doubleOf(latencyValue);
+        // NetworkTables timestamps are FPGA time in microseconds on the RoboRIO
+        double captureTime = arrival / 1e6 - latency / 1000.0 - kCaptureLatency;
+
+        // The other notifications of a frame already read in full carry nothing new
+        VisionTarget last = target.get();
+        if (last.captureTime == captureTime && last.valid == (doubleOf(valid) == 1) && last.xOffset == -doubleOf(x)
+                && last.yOffset == -doubleOf(y) && last.area == doubleOf(area)) {
+            return;
+        }
+
+        target.set(new VisionTarget(
+                doubleOf(valid) == 1,
+                -doubleOf(x),
+                -doubleOf(y),
+                doubleOf(area),
+                latency,
+                captureTime,
+                ++frameCount));
+    }
+
+    private static long timeOf(NetworkTableValue value) {
+        return value != null ? value.getTime() : 0;
+    }
+
+    private static double doubleOf(NetworkTableValue value) {
+        return value != null && value.isDouble() ? value.getDouble() : 0;
+    }
+
+}
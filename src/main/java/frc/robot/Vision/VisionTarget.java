@@ -0,0 +1,47 @@
+package frc.robot.Vision;
+
+/**
+ * One Limelight frame, read together on the NetworkTables listener thread so every value
+ * comes from the same camera frame
+ */
+public final class VisionTarget {
+
+    // Returned before the first frame arrives
+    public static final VisionTarget kNone = new VisionTarget(false, 0, 0, 0, 0, Double.NEGATIVE_INFINITY, 0);
+
+    public final boolean valid;
+
+    // Degrees from the crosshair; negated from tx and ty like OI used to, so positive x is left
+    public final double xOffset;
+    public final double yOffset;
+
+    // Target area in percent of the image
+    public final double area;
+
+    // Pipeline latency reported by the Limelight in ms
+    public final double latency;
+
+    // FPGA time in seconds when the image was exposed
+    public final double captureTime;
+
+    // Counts up by one for every frame received, 0 means no frame yet
+    public final long frame;
+
+    public VisionTarget(boolean valid, double xOffset, double yOffset, double area, double latency,
+            double captureTime, long frame) {
+        this.valid = valid;
+        this.xOffset = xOffset;
+        this.yOffset = yOffset;
+        this.area = area;
+        this.latency = latency;
+        this.captureTime = captureTime;
+        this.frame = frame;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("VisionTarget(frame %d, valid %b, x %.2f, y %.2f, captured %.3f)", frame, valid, xOffset,
+                yOffset, captureTime);
+    }
+
+}